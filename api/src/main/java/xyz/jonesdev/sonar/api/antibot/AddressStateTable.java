@@ -0,0 +1,654 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.antibot;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent open-addressing table that holds all per-IP state in one place:
+ * the number of online accounts, whether the IP is being verified or queued,
+ * the blacklist score and the rate-limit deadline.
+ * <br>
+ * Keys are stored as two longs; IPv4 addresses are packed into the lower long as IPv4-mapped IPv6 addresses.
+ * The table is split into segments that are guarded by their own {@link StampedLock},
+ * so reads are optimistic and usually don't block at all.
+ * Entries without any state left are removed immediately or by {@link #sweep()}.
+ */
+public final class AddressStateTable {
+  private static final int SEGMENT_BITS = 6;
+  private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+  // Every slot consists of STRIDE longs in the segment's slot array
+  private static final int STRIDE = 5;
+  private static final int HIGH = 0, LOW = 1, META = 2, BLACKLIST_DEADLINE = 3, RATELIMIT_DEADLINE = 4;
+
+  // Layout of the META long: 8 flag bits, 24 bits online accounts, 32 bits blacklist score
+  private static final long USED = 1L, VERIFYING = 1L << 1, QUEUED = 1L << 2;
+  private static final long FLAG_MASK = 0xFFL;
+  private static final int ONLINE_SHIFT = 8;
+  private static final long ONLINE_MASK = 0xFFFFFFL;
+  private static final int SCORE_SHIFT = 32;
+  private static final long IPV4_MAPPED_PREFIX = 0xFFFFL << 32;
+
+  private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+  public AddressStateTable() {
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  private static final class Segment {
+    private final StampedLock lock = new StampedLock();
+    private long[] slots = new long[INITIAL_SEGMENT_CAPACITY * STRIDE];
+    private Runnable[] queued = new Runnable[INITIAL_SEGMENT_CAPACITY];
+    private int size;
+    // Only written while holding the write lock
+    private volatile int verifying, queuedCount, blacklisted;
+  }
+
+  /*
+   * Online accounts
+   */
+
+  /**
+   * Increments the number of accounts that are online with the given IP address
+   *
+   * @return New number of online accounts
+   */
+  public int incrementOnline(final @NotNull InetAddress inetAddress) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    final long stamp = segment.lock.writeLock();
+    try {
+      final int base = findOrInsert(segment, high, low, hash) * STRIDE;
+      final long meta = segment.slots[base + META];
+      final long online = Math.min(((meta >>> ONLINE_SHIFT) & ONLINE_MASK) + 1, ONLINE_MASK);
+      segment.slots[base + META] = (meta & ~(ONLINE_MASK << ONLINE_SHIFT)) | (online << ONLINE_SHIFT);
+      return (int) online;
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  /*
+   * Verification and queue state
+   */
+
+  public boolean isVerifying(final @NotNull InetAddress inetAddress) {
+    return (read(inetAddress, META) & VERIFYING) != 0;
+  }
+
+  public void markVerifying(final @NotNull InetAddress inetAddress) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    final long stamp = segment.lock.writeLock();
+    try {
+      final int base = findOrInsert(segment, high, low, hash) * STRIDE;
+      if ((segment.slots[base + META] & VERIFYING) == 0) {
+        segment.slots[base + META] |= VERIFYING;
+        segment.verifying++;
+      }
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Queues the given action for the given IP address.
+   * If the IP address is already queued, the existing action is removed from the queue instead.
+   *
+   * @return false if the IP address was already queued
+   */
+  public boolean enqueue(final @NotNull InetAddress inetAddress, final @NotNull Runnable action) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    final long stamp = segment.lock.writeLock();
+    try {
+      final int index = findOrInsert(segment, high, low, hash);
+      final int base = index * STRIDE;
+      if ((segment.slots[base + META] & QUEUED) != 0) {
+        segment.slots[base + META] &= ~QUEUED;
+        segment.queued[index] = null;
+        segment.queuedCount--;
+        removeIfUnused(segment, index, System.nanoTime());
+        return false;
+      }
+      segment.slots[base + META] |= QUEUED;
+      segment.queued[index] = action;
+      segment.queuedCount++;
+      return true;
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the given action from the queue
+   *
+   * @return false if the action is no longer queued, e.g. because the player has disconnected
+   */
+  public boolean dequeue(final @NotNull InetAddress inetAddress, final @NotNull Runnable action) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    final long stamp = segment.lock.writeLock();
+    try {
+      final int index = find(segment.slots, high, low, hash);
+      // Compare the identity, since the IP address might have been queued again in the meantime
+      if (index == -1 || segment.queued[index] != action) return false;
+      segment.slots[index * STRIDE + META] &= ~QUEUED;
+      segment.queued[index] = null;
+      segment.queuedCount--;
+      removeIfUnused(segment, index, System.nanoTime());
+      return true;
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Updates the state of an IP address after one of its connections has been closed:
+   * Queued players are removed from the queue, verifying players are no longer marked as verifying,
+   * and the number of online accounts is decremented for everyone else.
+   */
+  public void handleDisconnect(final @NotNull InetAddress inetAddress) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    final long stamp = segment.lock.writeLock();
+    try {
+      final int index = find(segment.slots, high, low, hash);
+      if (index == -1) return;
+      final int base = index * STRIDE;
+      final long meta = segment.slots[base + META];
+      if ((meta & QUEUED) != 0) {
+        segment.slots[base + META] = meta & ~QUEUED;
+        segment.queued[index] = null;
+        segment.queuedCount--;
+      } else if ((meta & VERIFYING) != 0) {
+        // We've never incremented the number of online accounts for verifying players
+        segment.slots[base + META] = meta & ~VERIFYING;
+        segment.verifying--;
+      } else {
+        final long online = (meta >>> ONLINE_SHIFT) & ONLINE_MASK;
+        if (online > 0) {
+          segment.slots[base + META] = meta - (1L << ONLINE_SHIFT);
+        }
+      }
+      removeIfUnused(segment, index, System.nanoTime());
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  public int getVerifyingCount() {
+    int count = 0;
+    for (final Segment segment : segments) {
+      count += segment.verifying;
+    }
+    return count;
+  }
+
+  public int getQueuedCount() {
+    int count = 0;
+    for (final Segment segment : segments) {
+      count += segment.queuedCount;
+    }
+    return count;
+  }
+
+  /*
+   * Blacklist
+   */
+
+  /**
+   * @return Current blacklist score of the IP address, or 0 if it has no (unexpired) score
+   */
+  public int getBlacklistScore(final @NotNull InetAddress inetAddress) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    long stamp = segment.lock.tryOptimisticRead();
+    int score = readScore(segment.slots, high, low, hash);
+    if (!segment.lock.validate(stamp)) {
+      stamp = segment.lock.readLock();
+      try {
+        score = readScore(segment.slots, high, low, hash);
+      } finally {
+        segment.lock.unlockRead(stamp);
+      }
+    }
+    return score;
+  }
+
+  /**
+   * Increments the blacklist score of the IP address and resets its expiry
+   *
+   * @return New blacklist score
+   */
+  public int incrementBlacklistScore(final @NotNull InetAddress inetAddress, final long expiryNanos) {
+    return updateBlacklistScore(inetAddress, -1, expiryNanos);
+  }
+
+  /**
+   * Sets the blacklist score of the IP address and resets its expiry
+   */
+  public void setBlacklistScore(final @NotNull InetAddress inetAddress, final int score, final long expiryNanos) {
+    updateBlacklistScore(inetAddress, score, expiryNanos);
+  }
+
+  private int updateBlacklistScore(final @NotNull InetAddress inetAddress, final int newScore, final long expiryNanos) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    final long stamp = segment.lock.writeLock();
+    try {
+      final long now = System.nanoTime();
+      final int base = findOrInsert(segment, high, low, hash) * STRIDE;
+      final long meta = segment.slots[base + META];
+      final int current = validScore(segment.slots, base, now);
+      if ((meta >>> SCORE_SHIFT) == 0) {
+        segment.blacklisted++;
+      }
+      final int score = newScore < 0 ? current + 1 : newScore;
+      segment.slots[base + META] = (meta & ~(-1L << SCORE_SHIFT)) | ((long) score << SCORE_SHIFT);
+      segment.slots[base + BLACKLIST_DEADLINE] = nonZero(now + expiryNanos);
+      return score;
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * @return false if the IP address did not have a blacklist score
+   */
+  public boolean removeBlacklistScore(final @NotNull InetAddress inetAddress) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    final long stamp = segment.lock.writeLock();
+    try {
+      final long now = System.nanoTime();
+      final int index = find(segment.slots, high, low, hash);
+      if (index == -1) return false;
+      final boolean present = validScore(segment.slots, index * STRIDE, now) > 0;
+      clearScore(segment, index * STRIDE);
+      removeIfUnused(segment, index, now);
+      return present;
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes all blacklist scores
+   *
+   * @return Number of IP addresses that had a blacklist score
+   */
+  public long clearBlacklist() {
+    long cleared = 0L;
+    for (final Segment segment : segments) {
+      final long stamp = segment.lock.writeLock();
+      try {
+        cleared += segment.blacklisted;
+        final long now = System.nanoTime();
+        for (int index = 0; index < segment.queued.length; index++) {
+          final int base = index * STRIDE;
+          if ((segment.slots[base + META] & USED) == 0) continue;
+          clearScore(segment, base);
+          if (removeIfUnused(segment, index, now)) index--;
+        }
+      } finally {
+        segment.lock.unlockWrite(stamp);
+      }
+    }
+    return cleared;
+  }
+
+  /**
+   * @return Number of IP addresses with a blacklist score (which might have expired since the last sweep)
+   */
+  public long getBlacklistSize() {
+    long count = 0L;
+    for (final Segment segment : segments) {
+      count += segment.blacklisted;
+    }
+    return count;
+  }
+
+  /*
+   * Rate-limiting
+   */
+
+  /**
+   * Starts a new rate-limit period for the IP address, unless one is still active.
+   *
+   * @return false if the IP address is currently being rate-limited
+   */
+  public boolean tryStartRatelimit(final @NotNull InetAddress inetAddress, final long timeoutNanos) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    final long stamp = segment.lock.writeLock();
+    try {
+      final long now = System.nanoTime();
+      final int base = findOrInsert(segment, high, low, hash) * STRIDE;
+      final long deadline = segment.slots[base + RATELIMIT_DEADLINE];
+      if (deadline != 0L && deadline - now > 0L) {
+        return false;
+      }
+      segment.slots[base + RATELIMIT_DEADLINE] = nonZero(now + timeoutNanos);
+      return true;
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  public boolean isRatelimited(final @NotNull InetAddress inetAddress) {
+    final long deadline = read(inetAddress, RATELIMIT_DEADLINE);
+    return deadline != 0L && deadline - System.nanoTime() > 0L;
+  }
+
+  /*
+   * Maintenance
+   */
+
+  /**
+   * Expires blacklist scores and rate-limits and removes all entries without any state left
+   */
+  @ApiStatus.Internal
+  public void sweep() {
+    for (final Segment segment : segments) {
+      final long stamp = segment.lock.writeLock();
+      try {
+        final long now = System.nanoTime();
+        for (int index = 0; index < segment.queued.length; index++) {
+          final int base = index * STRIDE;
+          if ((segment.slots[base + META] & USED) == 0) continue;
+          if (validScore(segment.slots, base, now) == 0) {
+            clearScore(segment, base);
+          }
+          if (removeIfUnused(segment, index, now)) index--;
+        }
+      } finally {
+        segment.lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /**
+   * Writes all unexpired blacklist scores and rate-limits with their remaining time
+   */
+  @ApiStatus.Internal
+  public void writeSnapshot(final @NotNull DataOutput output) throws IOException {
+    for (final Segment segment : segments) {
+      final long stamp = segment.lock.readLock();
+      try {
+        final long[] slots = segment.slots;
+        final long now = System.nanoTime();
+        for (int base = 0; base < slots.length; base += STRIDE) {
+          if ((slots[base + META] & USED) == 0) continue;
+          final int score = validScore(slots, base, now);
+          final long ratelimitDeadline = slots[base + RATELIMIT_DEADLINE];
+          final long ratelimit = ratelimitDeadline == 0L ? 0L : Math.max(ratelimitDeadline - now, 0L);
+          if (score == 0 && ratelimit == 0L) continue;
+          output.writeBoolean(true);
+          output.writeLong(slots[base + HIGH]);
+          output.writeLong(slots[base + LOW]);
+          output.writeInt(score);
+          output.writeLong(score == 0 ? 0L : slots[base + BLACKLIST_DEADLINE] - now);
+          output.writeLong(ratelimit);
+        }
+      } finally {
+        segment.lock.unlockRead(stamp);
+      }
+    }
+    output.writeBoolean(false);
+  }
+
+  /**
+   * Restores blacklist scores and rate-limits that have been written using {@link #writeSnapshot}
+   *
+   * @param elapsedNanos Time that has passed since the snapshot was written
+   */
+  @ApiStatus.Internal
+  public void readSnapshot(final @NotNull DataInput input, final long elapsedNanos) throws IOException {
+    while (input.readBoolean()) {
+      final long high = input.readLong(), low = input.readLong();
+      final int score = input.readInt();
+      final long blacklist = input.readLong() - elapsedNanos;
+      final long ratelimit = input.readLong() - elapsedNanos;
+      if ((score == 0 || blacklist <= 0L) && ratelimit <= 0L) continue;
+
+      final long hash = hash(high, low);
+      final Segment segment = segment(hash);
+      final long stamp = segment.lock.writeLock();
+      try {
+        final long now = System.nanoTime();
+        final int base = findOrInsert(segment, high, low, hash) * STRIDE;
+        if (score > 0 && blacklist > 0L && validScore(segment.slots, base, now) < score) {
+          final long meta = segment.slots[base + META];
+          if ((meta >>> SCORE_SHIFT) == 0) {
+            segment.blacklisted++;
+          }
+          segment.slots[base + META] = (meta & ~(-1L << SCORE_SHIFT)) | ((long) score << SCORE_SHIFT);
+          segment.slots[base + BLACKLIST_DEADLINE] = nonZero(now + blacklist);
+        }
+        if (ratelimit > 0L) {
+          final long deadline = segment.slots[base + RATELIMIT_DEADLINE];
+          if (deadline == 0L || deadline - (now + ratelimit) < 0L) {
+            segment.slots[base + RATELIMIT_DEADLINE] = nonZero(now + ratelimit);
+          }
+        }
+        removeIfUnused(segment, base / STRIDE, now);
+      } finally {
+        segment.lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /*
+   * Internals
+   */
+
+  static long high(final @NotNull InetAddress inetAddress) {
+    if (inetAddress instanceof Inet4Address) {
+      return 0L;
+    }
+    final byte[] address = inetAddress.getAddress();
+    return toLong(address, 0);
+  }
+
+  static long low(final @NotNull InetAddress inetAddress) {
+    if (inetAddress instanceof Inet4Address) {
+      // The hash code of an IPv4 address is the address itself; this saves us from copying the address
+      return IPV4_MAPPED_PREFIX | (inetAddress.hashCode() & 0xFFFFFFFFL);
+    }
+    final byte[] address = inetAddress.getAddress();
+    return toLong(address, 8);
+  }
+
+  private static long toLong(final byte @NotNull [] bytes, final int offset) {
+    long value = 0L;
+    for (int i = offset; i < offset + 8; i++) {
+      value = (value << 8) | (bytes[i] & 0xFFL);
+    }
+    return value;
+  }
+
+  private static long hash(final long high, final long low) {
+    long hash = high * 0x9E3779B97F4A7C15L + low;
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private Segment segment(final long hash) {
+    return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+  }
+
+  private static long nonZero(final long deadline) {
+    // 0 means that there is no deadline
+    return deadline == 0L ? 1L : deadline;
+  }
+
+  private long read(final @NotNull InetAddress inetAddress, final int field) {
+    final long high = high(inetAddress), low = low(inetAddress), hash = hash(high, low);
+    final Segment segment = segment(hash);
+    long stamp = segment.lock.tryOptimisticRead();
+    long value = readField(segment.slots, high, low, hash, field);
+    if (!segment.lock.validate(stamp)) {
+      stamp = segment.lock.readLock();
+      try {
+        value = readField(segment.slots, high, low, hash, field);
+      } finally {
+        segment.lock.unlockRead(stamp);
+      }
+    }
+    return value;
+  }
+
+  private static long readField(final long @NotNull [] slots, final long high, final long low,
+                                final long hash, final int field) {
+    final int index = find(slots, high, low, hash);
+    return index == -1 ? 0L : slots[index * STRIDE + field];
+  }
+
+  private static int readScore(final long @NotNull [] slots, final long high, final long low, final long hash) {
+    final int index = find(slots, high, low, hash);
+    return index == -1 ? 0 : validScore(slots, index * STRIDE, System.nanoTime());
+  }
+
+  private static int validScore(final long @NotNull [] slots, final int base, final long now) {
+    final int score = (int) (slots[base + META] >>> SCORE_SHIFT);
+    return score > 0 && slots[base + BLACKLIST_DEADLINE] - now > 0L ? score : 0;
+  }
+
+  private static void clearScore(final @NotNull Segment segment, final int base) {
+    if ((segment.slots[base + META] >>> SCORE_SHIFT) != 0) {
+      segment.slots[base + META] &= ~(-1L << SCORE_SHIFT);
+      segment.slots[base + BLACKLIST_DEADLINE] = 0L;
+      segment.blacklisted--;
+    }
+  }
+
+  private static int find(final long @NotNull [] slots, final long high, final long low, final long hash) {
+    final int mask = slots.length / STRIDE - 1;
+    // Bound the number of probes since optimistic reads might observe an inconsistent table
+    for (int index = (int) hash & mask, probes = 0; probes <= mask; index = (index + 1) & mask, probes++) {
+      final int base = index * STRIDE;
+      if ((slots[base + META] & USED) == 0) {
+        return -1;
+      }
+      if (slots[base + HIGH] == high && slots[base + LOW] == low) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private static int findOrInsert(final @NotNull Segment segment, final long high, final long low, final long hash) {
+    final int index = find(segment.slots, high, low, hash);
+    if (index != -1) {
+      return index;
+    }
+    // Keep the load factor at or below 0.5 to keep probe sequences short
+    if ((segment.size + 1) * 2 > segment.queued.length) {
+      resize(segment);
+    }
+    final long[] slots = segment.slots;
+    final int mask = segment.queued.length - 1;
+    int free = (int) hash & mask;
+    while ((slots[free * STRIDE + META] & USED) != 0) {
+      free = (free + 1) & mask;
+    }
+    final int base = free * STRIDE;
+    slots[base + HIGH] = high;
+    slots[base + LOW] = low;
+    slots[base + META] = USED;
+    slots[base + BLACKLIST_DEADLINE] = 0L;
+    slots[base + RATELIMIT_DEADLINE] = 0L;
+    segment.size++;
+    return free;
+  }
+
+  private static void resize(final @NotNull Segment segment) {
+    final long[] oldSlots = segment.slots;
+    final Runnable[] oldQueued = segment.queued;
+    final int capacity = oldQueued.length * 2;
+    final long[] slots = new long[capacity * STRIDE];
+    final Runnable[] queued = new Runnable[capacity];
+    final int mask = capacity - 1;
+    for (int oldIndex = 0; oldIndex < oldQueued.length; oldIndex++) {
+      final int oldBase = oldIndex * STRIDE;
+      if ((oldSlots[oldBase + META] & USED) == 0) continue;
+      int index = (int) hash(oldSlots[oldBase + HIGH], oldSlots[oldBase + LOW]) & mask;
+      while ((slots[index * STRIDE + META] & USED) != 0) {
+        index = (index + 1) & mask;
+      }
+      System.arraycopy(oldSlots, oldBase, slots, index * STRIDE, STRIDE);
+      queued[index] = oldQueued[oldIndex];
+    }
+    // Optimistic readers still holding the old array will fail their validation
+    segment.slots = slots;
+    segment.queued = queued;
+  }
+
+  /**
+   * Removes the entry at the given index if it doesn't hold any state anymore
+   *
+   * @return true if the entry has been removed
+   */
+  private static boolean removeIfUnused(final @NotNull Segment segment, final int index, final long now) {
+    final long[] slots = segment.slots;
+    final int base = index * STRIDE;
+    final long meta = slots[base + META];
+    if ((meta & FLAG_MASK) != USED
+      || ((meta >>> ONLINE_SHIFT) & ONLINE_MASK) != 0
+      || (meta >>> SCORE_SHIFT) != 0) {
+      return false;
+    }
+    final long ratelimitDeadline = slots[base + RATELIMIT_DEADLINE];
+    if (ratelimitDeadline != 0L && ratelimitDeadline - now > 0L) {
+      return false;
+    }
+
+    // Backward shift deletion: move following entries of the probe sequence into the hole
+    final int mask = segment.queued.length - 1;
+    int hole = index;
+    for (int next = (hole + 1) & mask; ; next = (next + 1) & mask) {
+      final int nextBase = next * STRIDE;
+      if ((slots[nextBase + META] & USED) == 0) break;
+      final int ideal = (int) hash(slots[nextBase + HIGH], slots[nextBase + LOW]) & mask;
+      if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+        System.arraycopy(slots, nextBase, slots, hole * STRIDE, STRIDE);
+        segment.queued[hole] = segment.queued[next];
+        hole = next;
+      }
+    }
+    Arrays.fill(slots, hole * STRIDE, hole * STRIDE + STRIDE, 0L);
+    segment.queued[hole] = null;
+    segment.size--;
+    return true;
+  }
+}
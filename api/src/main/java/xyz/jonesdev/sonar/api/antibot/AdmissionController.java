@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.antibot;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.profiler.SimpleProcessProfiler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Feedback controller that decides how many logins are admitted from the queue per second.
+ * <br>
+ * The rate grows additively while the proxy keeps up and is halved as soon as it doesn't (AIMD).
+ * The proxy is considered overloaded if admitted logins wait too long for their event loop,
+ * the process uses too much CPU, or too many players are being verified at once.
+ * While most verifications fail, the rate is held, since admitting bots any faster only wastes resources.
+ * The configured number of polls per second is the starting point and the rate stays within a range around it.
+ */
+public final class AdmissionController {
+  private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("sonar.queue.adaptive", "true"));
+  // Maximum time an admitted login may wait for its event loop
+  private static final long TARGET_LAG = TimeUnit.MILLISECONDS.toNanos(Long.getLong("sonar.queue.target-lag-ms", 50L));
+  // Maximum CPU usage of the process in percent
+  private static final int MAX_CPU_USAGE = Integer.getInteger("sonar.queue.max-cpu-usage", 80);
+  // Maximum number of players that are being verified at once
+  private static final int MAX_VERIFYING = Integer.getInteger("sonar.queue.max-verifying", 5000);
+  // Share of successful verifications below which the rate isn't increased anymore
+  private static final double MIN_SUCCESS_RATIO = Integer.getInteger("sonar.queue.min-success-percent", 10) / 100D;
+  // Number of finished verifications that are needed before the success ratio is taken into account
+  private static final int MIN_SAMPLES = 20;
+  // The rate stays between 1/RANGE and RANGE times the configured number of polls per second
+  private static final int RANGE = Math.max(Integer.getInteger("sonar.queue.adaptive-range", 4), 1);
+
+  // Longest time an admitted login had to wait for its event loop since the last decision
+  private final LongAccumulator maximumLag = new LongAccumulator(Math::max, 0L);
+  // Only accessed by the queue thread
+  private double rate = -1D;
+  private int lastSuccessful, lastFailed;
+  @Getter
+  private volatile @Nullable Decision lastDecision;
+  private final LongAdder[] decisionsByReason = new LongAdder[Reason.values().length];
+
+  {
+    for (int i = 0; i < decisionsByReason.length; i++) {
+      decisionsByReason[i] = new LongAdder();
+    }
+  }
+
+  public enum Reason {
+    // The proxy keeps up, so more logins are admitted
+    INCREASE,
+    // Nobody is queued, so there is nothing to learn from
+    IDLE,
+    // Most admitted players fail the verification
+    LOW_SUCCESS_RATIO,
+    // The proxy is overloaded
+    LAG,
+    CPU_USAGE,
+    VERIFYING,
+    // The rate is always the configured number of polls per second
+    DISABLED
+  }
+
+  @Getter
+  @ToString
+  @RequiredArgsConstructor
+  public static final class Decision {
+    private final double rate;
+    private final Reason reason;
+    private final double lagMillis;
+    private final double cpuUsage;
+    private final int verifying;
+    // Negative if there were not enough finished verifications
+    private final double successRatio;
+  }
+
+  /**
+   * Records how long an admitted login had to wait until its event loop started processing it
+   */
+  void recordLag(final long lagNanos) {
+    maximumLag.accumulate(lagNanos);
+  }
+
+  /**
+   * Decides the new rate; called by the queue thread once per second
+   *
+   * @param configured Configured number of polls per second
+   * @param queued Whether anyone is waiting in the queue
+   * @param verifying Number of players that are currently being verified
+   * @return Number of logins that should be admitted per second
+   */
+  double update(final int configured, final boolean queued, final int verifying) {
+    final long lag = maximumLag.getThenReset();
+    final double cpuUsage = SimpleProcessProfiler.getProcessCPUUsage();
+    final int successful = Sonar.get0().getStatistics().getTotalSuccessfulVerifications();
+    final int failed = Sonar.get0().getStatistics().getTotalFailedVerifications();
+    final int finished = (successful - lastSuccessful) + (failed - lastFailed);
+    final double successRatio = finished >= MIN_SAMPLES ? (successful - lastSuccessful) / (double) finished : -1D;
+    // Keep collecting samples until there are enough of them
+    if (finished >= MIN_SAMPLES || finished < 0) {
+      lastSuccessful = successful;
+      lastFailed = failed;
+    }
+
+    final Reason reason;
+    if (!ENABLED) {
+      rate = configured;
+      reason = Reason.DISABLED;
+    } else {
+      // The configuration might have been reloaded in the meantime
+      final double minimum = Math.max(configured / (double) RANGE, 1D), maximum = configured * (double) RANGE;
+      if (rate < 0D) {
+        rate = configured;
+      }
+      if (lag > TARGET_LAG) {
+        reason = Reason.LAG;
+      } else if (cpuUsage > MAX_CPU_USAGE) {
+        reason = Reason.CPU_USAGE;
+      } else if (verifying > MAX_VERIFYING) {
+        reason = Reason.VERIFYING;
+      } else if (!queued) {
+        reason = Reason.IDLE;
+      } else if (successRatio >= 0D && successRatio < MIN_SUCCESS_RATIO) {
+        reason = Reason.LOW_SUCCESS_RATIO;
+      } else {
+        reason = Reason.INCREASE;
+      }
+      if (reason == Reason.INCREASE) {
+        rate += Math.max(configured / 10D, 1D);
+      } else if (reason == Reason.LAG || reason == Reason.CPU_USAGE || reason == Reason.VERIFYING) {
+        rate /= 2D;
+      }
+      rate = Math.min(Math.max(rate, minimum), maximum);
+    }
+
+    lastDecision = new Decision(rate, reason, lag / 1_000_000D, cpuUsage, verifying, successRatio);
+    decisionsByReason[reason.ordinal()].increment();
+    return rate;
+  }
+
+  /**
+   * @return Number of logins admitted per second since the last decision, or -1 if no decision was made yet
+   */
+  public double getRate() {
+    final Decision decision = lastDecision;
+    return decision == null ? -1D : decision.rate;
+  }
+
+  /**
+   * @param reason Reason of the decisions
+   * @return Number of decisions that were made for the given reason
+   */
+  public long getDecisions(final @NotNull Reason reason) {
+    return decisionsByReason[reason.ordinal()].sum();
+  }
+}
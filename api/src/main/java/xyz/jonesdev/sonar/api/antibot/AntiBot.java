@@ -17,30 +17,28 @@
 
 package xyz.jonesdev.sonar.api.antibot;
 
-import com.github.benmanes.caffeine.cache.Cache;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.antibot.captcha.CaptchaGenerator;
 import xyz.jonesdev.sonar.api.antibot.ratelimit.Ratelimiter;
 import xyz.jonesdev.sonar.api.config.SonarConfiguration;
 
 import java.net.InetAddress;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 @Getter
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class AntiBot {
   public static final AntiBot INSTANCE = new AntiBot();
 
-  private final ConcurrentMap<InetAddress, Integer> online = new ConcurrentHashMap<>(128);
-  private final ConcurrentMap<InetAddress, Boolean> connected = new ConcurrentHashMap<>(256);
-  private final LoginQueue queue = new LoginQueue();
-  @Setter
-  private Cache<String, Integer> blacklist;
+  // Online accounts, verifying and queued players, blacklist scores and rate-limits of every IP address
+  private final AddressStateTable addressStateTable = new AddressStateTable();
+  private final LoginQueue queue = new LoginQueue(addressStateTable);
+  // Manually and automatically blacklisted address ranges
+  private final SubnetBlacklist subnetBlacklist = new SubnetBlacklist();
   @Setter
   private long blacklistTime;
   @Setter
@@ -48,6 +46,18 @@ public final class AntiBot {
   @Setter
   private Ratelimiter<InetAddress> ratelimiter;
 
+  /**
+   * @return true if the IP address failed the verification too many times or is inside a blacklisted range
+   */
+  public boolean isBlacklisted(final @NotNull InetAddress inetAddress) {
+    // The user is allowed to disable the blacklist threshold by setting it to 0
+    final int limit = Sonar.get0().getConfig().getVerification().getBlacklistThreshold();
+    if (limit > 0 && addressStateTable.getBlacklistScore(inetAddress) >= limit) {
+      return true;
+    }
+    return subnetBlacklist.isBlacklisted(inetAddress);
+  }
+
   public boolean shouldVerifyNewPlayers() {
     return shouldPerform(Sonar.get0().getConfig().getVerification().getTiming());
   }
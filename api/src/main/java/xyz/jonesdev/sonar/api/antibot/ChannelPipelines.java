@@ -20,6 +20,7 @@
 public interface ChannelPipelines {
   String SONAR_INACTIVE_LISTENER = "sonar-inactive-listener";
   String SONAR_INBOUND_HANDLER = "sonar-inbound-handler";
+  String SONAR_HANDSHAKE_FILTER = "sonar-handshake-filter";
   String SONAR_FRAME_DECODER = "sonar-frame-decoder";
   String SONAR_FRAME_ENCODER = "sonar-frame-encoder";
   String SONAR_TIMEOUT = "sonar-timeout";
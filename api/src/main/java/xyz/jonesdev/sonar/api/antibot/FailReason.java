@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.antibot;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * Check that a player has failed during the verification
+ */
+@Getter
+@RequiredArgsConstructor
+public enum FailReason {
+  // Login & configuration
+  KEEP_ALIVE_ID("expected K ID %s but got %s"),
+  DUPLICATE_LOGIN_ACK("sent duplicate login ack"),
+  VIEW_DISTANCE("view distance: %s"),
+  DUPLICATE_CLIENT_BRAND("sent duplicate client brand"),
+  MISSING_CLIENT_INFORMATION("didn't send client settings"),
+  MISSING_CLIENT_BRAND("didn't send client brand"),
+  CLIENT_BRAND_TOO_SHORT("client brand is too short"),
+  CLIENT_BRAND_TOO_LONG("client brand contains too much data: %s"),
+  CLIENT_BRAND_PATTERN("client brand does not match pattern: %s"),
+  // Gravity & collisions
+  DUPLICATE_TELEPORT_CONFIRM("duplicate teleport confirm"),
+  TELEPORT_ID("expected TP ID %s, but got %s"),
+  TELEPORT_ORDER("expected position rotation but got teleport confirm."),
+  CLIENT_TICK("expected client tick end but got position."),
+  MOVEMENT_ORDER("illegal movement packet order"),
+  TELEPORT_GROUND_STATE("illegal ground state on teleport"),
+  TELEPORT_X("invalid x: %s"),
+  TELEPORT_Z("invalid z: %s"),
+  FELL_THROUGH_BLOCKS("fell through blocks: %s/%s/%s"),
+  X_OFFSET("illegal x offset: %s"),
+  Z_OFFSET("illegal z offset: %s"),
+  FIRST_MOVEMENT_TICK("illegal y motion: %s"),
+  UNEXPECTED_MOTION("unexpected y motion: %s"),
+  GRAVITY("incorrect gravity: %s/ %s/%s"),
+  COLLISION_TICK("illegal collision tick: %s/%s"),
+  COLLISION("illegal collision: %s/%s/%s"),
+  // Protocol
+  UNEXPECTED_TRANSACTION("unexpected transaction: %s"),
+  TRANSACTION_WINDOW("wrong window: %s"),
+  TRANSACTION_NOT_ACCEPTED("didn't accept transaction"),
+  TRANSACTION_ID("expected T ID %s, but got %s"),
+  SLOT_OUT_OF_RANGE("slot out of range: %s"),
+  ANIMATION_ENTITY_ID("invalid entity ID %s"),
+  ANIMATION_HAND("invalid hand %s"),
+  // Vehicle
+  VEHICLE_PACKET_TIMING("invalid packet timing"),
+  VEHICLE_KEEP_ALIVE_ID("expected K ID %s, but got %s"),
+  VEHICLE_Y("bad vehicle y: %s"),
+  VEHICLE_GRAVITY("bad vehicle gravity: %s/%s"),
+  VEHICLE_SPEED_FORWARD("illegal speed (f): %s"),
+  VEHICLE_SPEED_SIDEWAYS("illegal speed (s): %s"),
+  INPUT_ROTATION_ORDER("illegal packet order; i/r %s/%s"),
+  INPUT_PADDLE_ORDER("illegal packet order; i/p %s/%s"),
+  INPUT_VEHICLE_MOVE_ORDER("illegal packet order; i/v %s/%s"),
+  VEHICLE_EXIT_Y("invalid y: %s"),
+  VEHICLE_EXIT_GROUND_STATE("invalid ground state: %s"),
+  // CAPTCHA
+  CAPTCHA_TIMEOUT("took too long to enter CAPTCHA"),
+  CAPTCHA_TRIES("failed CAPTCHA too often");
+
+  private final String message;
+
+  /**
+   * @param details Values that replace the placeholders of the message
+   * @return Human-readable description of this reason
+   */
+  public @NotNull String format(final Object @NotNull ... details) {
+    return details.length == 0 ? message : String.format(Locale.ROOT, message, details);
+  }
+}
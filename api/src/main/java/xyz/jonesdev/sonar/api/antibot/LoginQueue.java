@@ -17,37 +17,118 @@
 
 package xyz.jonesdev.sonar.api.antibot;
 
+import io.netty.util.internal.PlatformDependent;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.Sonar;
 
 import java.net.InetAddress;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Bounded first-in-first-out queue of logins that are waiting to be verified.
+ * <br>
+ * Any thread can queue a login, but only the queue thread takes logins out of the queue.
+ * The queue is polled every tick, and the number of polls per second is spread evenly across all ticks.
+ * The number of polls per second is adjusted by the {@link AdmissionController} once per second.
+ * Every login is handed over to the executor it has been queued with, which is usually the channel's event loop.
+ */
 @Getter
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 public final class LoginQueue {
-  // Fixed thread pool executor for all new verifications
-  private static final int THREAD_POOL_SIZE = Math.min(0x7fff, Runtime.getRuntime().availableProcessors() * 2);
-  private static final ExecutorService QUEUE_EXECUTOR = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+  // Maximum number of logins that can be queued at once
+  private static final int CAPACITY = Integer.getInteger("sonar.queue.capacity", 65536);
+  // What happens to new logins if the queue is full
+  public static final OverflowPolicy OVERFLOW_POLICY = OverflowPolicy.valueOf(
+    System.getProperty("sonar.queue.overflow", OverflowPolicy.REJECT.name()));
+  public static final int TICKS_PER_SECOND = 20;
+
+  // Queued actions are also stored in the per-IP state table, so every IP address can only be queued once
+  private final AddressStateTable addressStateTable;
+  @Getter(AccessLevel.NONE)
+  private final Queue<Entry> entries = PlatformDependent.newFixedMpscQueue(CAPACITY);
+  private final AdmissionController admissionController = new AdmissionController();
+  // Number of polls that are left over from previous ticks (only accessed by the queue thread)
+  @Getter(AccessLevel.NONE)
+  private double credits, pollsPerTick;
+  @Getter(AccessLevel.NONE)
+  private int tick;
+
+  public enum OverflowPolicy {
+    // Disconnect new players with a message telling them to try again later
+    REJECT,
+    // Close the connection of new players without sending anything
+    CLOSE
+  }
+
+  public enum Result {
+    QUEUED,
+    ALREADY_QUEUED,
+    FULL
+  }
 
-  private final ConcurrentMap<InetAddress, Runnable> players = new ConcurrentHashMap<>(512);
+  @RequiredArgsConstructor
+  private static final class Entry {
+    private final InetAddress inetAddress;
+    private final Executor executor;
+    private final Runnable action;
+  }
+
+  /**
+   * Queues the given action for the given IP address.
+   * If the IP address is already queued, the existing action is removed from the queue instead.
+   *
+   * @param executor Executor the action is run on once the login leaves the queue
+   */
+  public @NotNull Result enqueue(final @NotNull InetAddress inetAddress,
+                                 final @NotNull Executor executor,
+                                 final @NotNull Runnable action) {
+    if (!addressStateTable.enqueue(inetAddress, action)) {
+      return Result.ALREADY_QUEUED;
+    }
+    if (!entries.offer(new Entry(inetAddress, executor, action))) {
+      addressStateTable.dequeue(inetAddress, action);
+      return Result.FULL;
+    }
+    return Result.QUEUED;
+  }
+
+  public int getSize() {
+    return addressStateTable.getQueuedCount();
+  }
 
+  /**
+   * Admits the next logins of the queue; must be called every tick by the same thread
+   */
+  @ApiStatus.Internal
   public void poll() {
-    final int maxQueuePolls = Math.min(players.size(), Sonar.get0().getConfig().getQueue().getMaxQueuePolls());
-    // No need to initiate an executor service task if nobody is currently queued
-    if (maxQueuePolls <= 0) return;
-    // We need to be cautious here since we don't want any concurrency issues
-    QUEUE_EXECUTOR.execute(() -> {
-      final var iterator = players.entrySet().iterator();
-      for (int index = 0; index < maxQueuePolls && iterator.hasNext(); index++) {
-        iterator.next().getValue().run();
-        iterator.remove();
+    if (tick++ % TICKS_PER_SECOND == 0) {
+      final double rate = admissionController.update(Sonar.get0().getConfig().getQueue().getMaxQueuePolls(),
+        getSize() > 0, addressStateTable.getVerifyingCount());
+      pollsPerTick = rate / TICKS_PER_SECOND;
+    }
+    // Don't let unused polls pile up while the queue is empty
+    credits = Math.min(credits + pollsPerTick, pollsPerTick + 1D);
+    while (credits >= 1D) {
+      final Entry entry = entries.poll();
+      if (entry == null) break;
+      // Skip players that have disconnected or have been removed from the queue
+      if (!addressStateTable.dequeue(entry.inetAddress, entry.action)) continue;
+      credits--;
+      final long admittedAt = System.nanoTime();
+      try {
+        entry.executor.execute(() -> {
+          admissionController.recordLag(System.nanoTime() - admittedAt);
+          entry.action.run();
+        });
+      } catch (RejectedExecutionException ignored) {
+        // The event loop has been shut down
       }
-    });
+    }
   }
 }
@@ -35,7 +35,7 @@ public interface SonarUser {
 
   @NotNull SystemTimer getLoginTimer();
 
-  @NotNull String getFingerprint();
+  long getFingerprint();
 
   @NotNull String getUsername();
 
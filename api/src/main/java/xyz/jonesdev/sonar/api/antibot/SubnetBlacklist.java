@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.antibot;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Blacklist for entire address ranges (CIDR) backed by a path-compressed binary radix trie.
+ * <br>
+ * Keys are the same 128-bit keys that are used by the {@link AddressStateTable},
+ * which means that IPv4 ranges live below the IPv4-mapped IPv6 prefix.
+ * Lookups walk at most one node per prefix bit and don't allocate anything for IPv4 addresses.
+ * <br>
+ * Besides manually added ranges, this blacklist escalates automatically:
+ * once enough addresses of the same subnet have been blacklisted, the whole subnet is blacklisted.
+ */
+public final class SubnetBlacklist {
+  // Number of blacklisted addresses after which their entire subnet is blacklisted (0 to disable)
+  private static final int ESCALATION_THRESHOLD = Integer.getInteger("sonar.blacklist.subnet-threshold", 8);
+  // Subnet sizes that are used for the escalation
+  private static final int IPV4_ESCALATION_PREFIX = Integer.getInteger("sonar.blacklist.ipv4-subnet-prefix", 24);
+  private static final int IPV6_ESCALATION_PREFIX = Integer.getInteger("sonar.blacklist.ipv6-subnet-prefix", 64);
+  // IPv4 addresses are stored as IPv4-mapped IPv6 addresses (::ffff:0:0/96)
+  private static final int IPV4_MAPPED_LENGTH = 96;
+  private static final int KEY_LENGTH = 128;
+
+  private final StampedLock lock = new StampedLock();
+  private @Nullable Node root;
+
+  private static final class Node {
+    private final long high, low;
+    private final int length;
+    private @Nullable Node zero, one;
+    // 0 means that this prefix is not blacklisted
+    private long deadline;
+    // Number of blacklisted addresses inside this prefix (used for the escalation)
+    private int hits;
+    private long hitsDeadline;
+
+    private Node(final long high, final long low, final int length) {
+      this.high = high;
+      this.low = low;
+      this.length = length;
+    }
+  }
+
+  /**
+   * @return true if the given IP address is inside a blacklisted range
+   */
+  public boolean isBlacklisted(final @NotNull InetAddress inetAddress) {
+    final long high = AddressStateTable.high(inetAddress), low = AddressStateTable.low(inetAddress);
+    final long now = System.nanoTime();
+    // Prefix lengths strictly grow while walking down, so an optimistic walk
+    // always terminates, even if it races with a writer, and only has to be validated
+    long stamp = lock.tryOptimisticRead();
+    boolean result = lookup(high, low, now);
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        result = lookup(high, low, now);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return result;
+  }
+
+  private boolean lookup(final long high, final long low, final long now) {
+    Node node = root;
+    while (node != null && commonPrefix(node.high, node.low, high, low) >= node.length) {
+      final long deadline = node.deadline;
+      if (deadline != 0L && deadline - now > 0L) {
+        return true;
+      }
+      if (node.length == KEY_LENGTH) break;
+      node = bit(high, low, node.length) == 0 ? node.zero : node.one;
+    }
+    return false;
+  }
+
+  /**
+   * Blacklists the given range
+   *
+   * @param prefixLength Prefix length relative to the address family (e.g. 24 for 127.0.0.0/24)
+   * @return false if the range was already blacklisted
+   */
+  public boolean add(final @NotNull InetAddress inetAddress, final int prefixLength, final long expiryNanos) {
+    final int length = toKeyLength(inetAddress, prefixLength);
+    final long high = AddressStateTable.high(inetAddress), low = AddressStateTable.low(inetAddress);
+    final long stamp = lock.writeLock();
+    try {
+      final long now = System.nanoTime();
+      final Node node = insert(maskHigh(high, length), maskLow(low, length), length);
+      final boolean existed = node.deadline != 0L && node.deadline - now > 0L;
+      node.deadline = nonZero(now + expiryNanos);
+      return !existed;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the given range from the blacklist
+   *
+   * @param prefixLength Prefix length relative to the address family (e.g. 24 for 127.0.0.0/24)
+   * @return false if the range wasn't blacklisted
+   */
+  public boolean remove(final @NotNull InetAddress inetAddress, final int prefixLength) {
+    final int length = toKeyLength(inetAddress, prefixLength);
+    final long high = maskHigh(AddressStateTable.high(inetAddress), length);
+    final long low = maskLow(AddressStateTable.low(inetAddress), length);
+    final long stamp = lock.writeLock();
+    try {
+      final long now = System.nanoTime();
+      Node node = root;
+      while (node != null && node.length <= length && commonPrefix(node.high, node.low, high, low) >= node.length) {
+        if (node.length == length) {
+          final boolean existed = node.deadline != 0L && node.deadline - now > 0L;
+          node.deadline = 0L;
+          root = prune(root, now);
+          return existed;
+        }
+        node = bit(high, low, node.length) == 0 ? node.zero : node.one;
+      }
+      return false;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Counts a newly blacklisted IP address towards its subnet and
+   * blacklists the entire subnet once enough of its addresses have been blacklisted
+   *
+   * @return true if the subnet has been blacklisted because of this address
+   */
+  public boolean escalate(final @NotNull InetAddress inetAddress, final long expiryNanos) {
+    if (ESCALATION_THRESHOLD <= 0) return false;
+    final int length = inetAddress instanceof Inet4Address
+      ? IPV4_MAPPED_LENGTH + IPV4_ESCALATION_PREFIX : IPV6_ESCALATION_PREFIX;
+    final long high = AddressStateTable.high(inetAddress), low = AddressStateTable.low(inetAddress);
+    final long stamp = lock.writeLock();
+    try {
+      final long now = System.nanoTime();
+      final Node node = insert(maskHigh(high, length), maskLow(low, length), length);
+      // Start counting from the beginning if the previous hits have expired
+      if (node.hits > 0 && node.hitsDeadline - now <= 0L) {
+        node.hits = 0;
+      }
+      node.hitsDeadline = now + expiryNanos;
+      if (++node.hits < ESCALATION_THRESHOLD) {
+        return false;
+      }
+      node.hits = 0;
+      node.deadline = nonZero(now + expiryNanos);
+      return true;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * @return Number of blacklisted ranges
+   */
+  public long getSize() {
+    final long stamp = lock.readLock();
+    try {
+      return count(root, System.nanoTime());
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Removes all ranges from the blacklist
+   *
+   * @return Number of ranges that were blacklisted
+   */
+  public long clear() {
+    final long stamp = lock.writeLock();
+    try {
+      final long size = count(root, System.nanoTime());
+      root = null;
+      return size;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Expires blacklisted ranges and escalation counters and removes all nodes that are no longer needed
+   */
+  @ApiStatus.Internal
+  public void sweep() {
+    if (root == null) return;
+    final long stamp = lock.writeLock();
+    try {
+      root = prune(root, System.nanoTime());
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Writes all blacklisted ranges and escalation counters with their remaining time
+   */
+  @ApiStatus.Internal
+  public void writeSnapshot(final @NotNull DataOutput output) throws IOException {
+    final long stamp = lock.readLock();
+    try {
+      writeSnapshot(root, output, System.nanoTime());
+    } finally {
+      lock.unlockRead(stamp);
+    }
+    output.writeBoolean(false);
+  }
+
+  private static void writeSnapshot(final @Nullable Node node, final @NotNull DataOutput output,
+                                    final long now) throws IOException {
+    if (node == null) return;
+    final long deadline = node.deadline == 0L ? 0L : Math.max(node.deadline - now, 0L);
+    final long hitsDeadline = node.hits == 0 ? 0L : Math.max(node.hitsDeadline - now, 0L);
+    if (deadline > 0L || hitsDeadline > 0L) {
+      output.writeBoolean(true);
+      output.writeLong(node.high);
+      output.writeLong(node.low);
+      output.writeByte(node.length);
+      output.writeLong(deadline);
+      output.writeInt(node.hits);
+      output.writeLong(hitsDeadline);
+    }
+    writeSnapshot(node.zero, output, now);
+    writeSnapshot(node.one, output, now);
+  }
+
+  /**
+   * Restores blacklisted ranges and escalation counters that have been written using {@link #writeSnapshot}
+   *
+   * @param elapsedNanos Time that has passed since the snapshot was written
+   */
+  @ApiStatus.Internal
+  public void readSnapshot(final @NotNull DataInput input, final long elapsedNanos) throws IOException {
+    while (input.readBoolean()) {
+      final long high = input.readLong(), low = input.readLong();
+      final int length = input.readUnsignedByte();
+      final long deadline = input.readLong() - elapsedNanos;
+      final int hits = input.readInt();
+      final long hitsDeadline = input.readLong() - elapsedNanos;
+      if (length > KEY_LENGTH || (deadline <= 0L && hitsDeadline <= 0L)) continue;
+
+      final long stamp = lock.writeLock();
+      try {
+        final long now = System.nanoTime();
+        final Node node = insert(maskHigh(high, length), maskLow(low, length), length);
+        if (deadline > 0L && (node.deadline == 0L || node.deadline - (now + deadline) < 0L)) {
+          node.deadline = nonZero(now + deadline);
+        }
+        if (hitsDeadline > 0L && node.hits < hits) {
+          node.hits = hits;
+          node.hitsDeadline = now + hitsDeadline;
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /*
+   * Internals
+   */
+
+  private @NotNull Node insert(final long high, final long low, final int length) {
+    Node parent = null, node = root;
+    while (node != null) {
+      final int common = Math.min(commonPrefix(node.high, node.low, high, low), Math.min(node.length, length));
+      if (common == node.length) {
+        // We found the exact node
+        if (common == length) return node;
+        // The node is a prefix of the key, so keep walking down
+        parent = node;
+        node = bit(high, low, node.length) == 0 ? node.zero : node.one;
+        continue;
+      }
+      final Node created = new Node(high, low, length);
+      if (common == length) {
+        // The key is a prefix of the node, so the node becomes a child of the new node
+        link(created, node);
+        link(parent, created);
+        return created;
+      }
+      // The key diverges from the node, so both become children of a new branch
+      final Node branch = new Node(maskHigh(high, common), maskLow(low, common), common);
+      link(branch, node);
+      link(branch, created);
+      link(parent, branch);
+      return created;
+    }
+    final Node created = new Node(high, low, length);
+    link(parent, created);
+    return created;
+  }
+
+  private void link(final @Nullable Node parent, final @NotNull Node child) {
+    if (parent == null) {
+      root = child;
+    } else if (bit(child.high, child.low, parent.length) == 0) {
+      parent.zero = child;
+    } else {
+      parent.one = child;
+    }
+  }
+
+  private static @Nullable Node prune(final @Nullable Node node, final long now) {
+    if (node == null) return null;
+    node.zero = prune(node.zero, now);
+    node.one = prune(node.one, now);
+    if (node.deadline != 0L && node.deadline - now <= 0L) {
+      node.deadline = 0L;
+    }
+    if (node.hits > 0 && node.hitsDeadline - now <= 0L) {
+      node.hits = 0;
+    }
+    // Keep nodes that still hold state or are needed as a branch
+    if (node.deadline != 0L || node.hits > 0 || (node.zero != null && node.one != null)) {
+      return node;
+    }
+    return node.zero != null ? node.zero : node.one;
+  }
+
+  private static long count(final @Nullable Node node, final long now) {
+    if (node == null) return 0L;
+    final long self = node.deadline != 0L && node.deadline - now > 0L ? 1L : 0L;
+    return self + count(node.zero, now) + count(node.one, now);
+  }
+
+  private static int toKeyLength(final @NotNull InetAddress inetAddress, final int prefixLength) {
+    final int maximum = inetAddress instanceof Inet4Address ? KEY_LENGTH - IPV4_MAPPED_LENGTH : KEY_LENGTH;
+    if (prefixLength < 0 || prefixLength > maximum) {
+      throw new IllegalArgumentException("Invalid prefix length " + prefixLength);
+    }
+    return inetAddress instanceof Inet4Address ? IPV4_MAPPED_LENGTH + prefixLength : prefixLength;
+  }
+
+  private static int commonPrefix(final long high1, final long low1, final long high2, final long low2) {
+    final long high = high1 ^ high2;
+    if (high != 0L) return Long.numberOfLeadingZeros(high);
+    final long low = low1 ^ low2;
+    return low == 0L ? KEY_LENGTH : Long.SIZE + Long.numberOfLeadingZeros(low);
+  }
+
+  private static int bit(final long high, final long low, final int index) {
+    return index < Long.SIZE
+      ? (int) (high >>> (Long.SIZE - 1 - index)) & 1
+      : (int) (low >>> (KEY_LENGTH - 1 - index)) & 1;
+  }
+
+  private static long maskHigh(final long high, final int length) {
+    if (length <= 0) return 0L;
+    return length >= Long.SIZE ? high : high & (-1L << (Long.SIZE - length));
+  }
+
+  private static long maskLow(final long low, final int length) {
+    if (length <= Long.SIZE) return 0L;
+    return length >= KEY_LENGTH ? low : low & (-1L << (KEY_LENGTH - length));
+  }
+
+  private static long nonZero(final long deadline) {
+    // 0 means that the prefix is not blacklisted
+    return deadline == 0L ? 1L : deadline;
+  }
+}
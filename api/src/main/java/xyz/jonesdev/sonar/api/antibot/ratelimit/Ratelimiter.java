@@ -22,4 +22,13 @@
 @FunctionalInterface
 public interface Ratelimiter<T> {
   boolean attempt(final @NotNull T t);
+
+  /**
+   * Checks whether the next attempt would be denied without counting as an attempt
+   *
+   * @return true if the given key is currently being rate-limited
+   */
+  default boolean isRatelimited(final @NotNull T t) {
+    return false;
+  }
 }
@@ -25,6 +25,8 @@
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.command.InvocationSource;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
@@ -55,6 +57,21 @@ public Subcommand() {
     return raw;
   }
 
+  protected static @Nullable InetAddress validateInetAddress(final InvocationSource source, final String raw) {
+    final String rawAddress = validateIP(source, raw);
+    if (rawAddress == null) return null;
+    try {
+      // The address has already been validated as a literal, so this never performs a lookup
+      return InetAddress.getByName(rawAddress);
+    } catch (UnknownHostException exception) {
+      // This can only happen if the scope of an IPv6 address is unknown
+      source.sendMessage(MiniMessage.miniMessage().deserialize(
+        Sonar.get0().getConfig().getMessagesConfig().getString("commands.invalid-ip-address"),
+        Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())));
+      return null;
+    }
+  }
+
   protected final void incorrectUsage(final @NotNull InvocationSource invocationSource) {
     incorrectUsage(invocationSource, info.name() + " (" + arguments + ")");
   }
@@ -478,6 +478,8 @@ public enum Type {
           .version("42.7.8")
           .relocate("org{}postgresql", "xyz{}jonesdev{}sonar{}libs{}postgresql")
           .build()),
+      // Append-only file in Sonar's plugin directory
+      LOCAL("Local", null, null, null),
       NONE("None", null, null, null);
 
       private final String displayName;
@@ -0,0 +1,362 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.database.controller;
+
+import io.netty.util.internal.PlatformDependent;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Append-only file that stores verified players without an SQL database.
+ * <br>
+ * The file starts with a header containing the key of the fingerprint hash, followed by
+ * fixed-size records of a fingerprint and the time the player was verified at.
+ * Removals are appended as records with a negative timestamp, so the last record of every fingerprint wins.
+ * The file is memory-mapped while it is loaded and compacted once outdated records pile up.
+ * Adds and removes only queue their record; the file is written by whoever calls {@link #flush()}.
+ */
+final class LocalVerifiedPlayerStore implements Closeable {
+  private static final int MAGIC = 0x534E5256; // SNRV
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 24;
+  private static final int RECORD_SIZE = 16;
+  private static final long REMOVED = -1L;
+  // Number of records that are buffered in memory before they are written to the file
+  static final int BUFFERED_RECORDS = 1024;
+  // Maximum number of records that can wait to be written; further records are dropped
+  private static final int CAPACITY = Integer.getInteger("sonar.verified.local-queue-size", 16384);
+
+  private final @NotNull Path path;
+  private final BlockingQueue<Write> queue = new ArrayBlockingQueue<>(CAPACITY);
+  @Getter
+  private final LongAdder dropped = new LongAdder();
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFERED_RECORDS * RECORD_SIZE);
+  private FileChannel channel;
+  @Getter
+  private long key0, key1;
+  // Number of records in the file, including outdated ones
+  private long records;
+
+  LocalVerifiedPlayerStore(final @NotNull Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Reads all verified players from the file, drops the expired ones, and opens the file for appending.
+   *
+   * @param expiry Time before which verified players are expired
+   * @param consumer Receives the fingerprint of every verified player
+   */
+  synchronized void load(final long expiry, final @NotNull LongConsumer consumer) throws IOException {
+    if (!Files.exists(path)) {
+      final SecureRandom random = new SecureRandom();
+      key0 = random.nextLong();
+      key1 = random.nextLong();
+      rewrite(new Entries(), expiry);
+      return;
+    }
+
+    final Entries entries = read();
+    compact(entries, expiry, fingerprint -> {});
+    entries.forEach((fingerprint, timestamp) -> {
+      if (timestamp >= expiry) {
+        consumer.accept(fingerprint);
+      }
+    });
+  }
+
+  @RequiredArgsConstructor
+  private static final class Write {
+    private final long fingerprint, timestamp;
+  }
+
+  /**
+   * @return false if the queue is full and the record has been dropped
+   */
+  boolean add(final long fingerprint, final long timestamp) {
+    return offer(new Write(fingerprint, timestamp));
+  }
+
+  /**
+   * @return false if the queue is full and the record has been dropped
+   */
+  boolean remove(final long fingerprint) {
+    return offer(new Write(fingerprint, REMOVED));
+  }
+
+  private boolean offer(final @NotNull Write write) {
+    if (queue.offer(write)) {
+      return true;
+    }
+    dropped.increment();
+    return false;
+  }
+
+  int size() {
+    return queue.size();
+  }
+
+  /**
+   * Writes all queued records to the file
+   */
+  synchronized void flush() throws IOException {
+    if (channel == null) {
+      throw new IOException(path + " is not open");
+    }
+    final List<Write> drained = new ArrayList<>(BUFFERED_RECORDS);
+    while (queue.drainTo(drained, BUFFERED_RECORDS) > 0) {
+      for (final Write write : drained) {
+        if (!buffer.hasRemaining()) {
+          write(channel, buffer);
+        }
+        buffer.putLong(write.fingerprint).putLong(write.timestamp);
+        records++;
+      }
+      drained.clear();
+    }
+    write(channel, buffer);
+  }
+
+  /**
+   * Rewrites the file without removed and expired verified players,
+   * but only if they make up the majority of all records
+   *
+   * @param expiry Time before which verified players are expired
+   * @param expired Receives the fingerprint of every expired verified player
+   */
+  synchronized void compact(final long expiry, final @NotNull LongConsumer expired) throws IOException {
+    flush();
+    compact(read(), expiry, expired);
+  }
+
+  private void compact(final @NotNull Entries entries, final long expiry,
+                       final @NotNull LongConsumer expired) throws IOException {
+    final long live = entries.count(expiry, expired);
+    // Keep appending to the current file as long as most of its records are still relevant
+    if (records < (live << 1) + BUFFERED_RECORDS) {
+      if (channel == null) {
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        // Get rid of a partially written record at the end of the file
+        channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+        channel.position(channel.size());
+      }
+      return;
+    }
+    rewrite(entries, expiry);
+  }
+
+  /**
+   * Removes all verified players from the file
+   */
+  synchronized void clear() throws IOException {
+    queue.clear();
+    buffer.clear();
+    rewrite(new Entries(), 0L);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel != null) {
+      flush();
+      channel.force(false);
+      channel.close();
+      channel = null;
+    }
+  }
+
+  private @NotNull Entries read() throws IOException {
+    final Entries entries = new Entries();
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+      try {
+        if (mapped.remaining() < HEADER_SIZE || mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+          throw new IOException("Invalid file format of " + path);
+        }
+        key0 = mapped.getLong();
+        key1 = mapped.getLong();
+        records = 0L;
+        // A partially written record at the end of the file is simply ignored
+        while (mapped.remaining() >= RECORD_SIZE) {
+          final long fingerprint = mapped.getLong();
+          final long timestamp = mapped.getLong();
+          if (timestamp == REMOVED) {
+            entries.remove(fingerprint);
+          } else {
+            entries.put(fingerprint, timestamp);
+          }
+          records++;
+        }
+      } finally {
+        // Unmap the file right away, otherwise it can't be replaced on every platform
+        PlatformDependent.freeDirectBuffer(mapped);
+      }
+    }
+    return entries;
+  }
+
+  private void rewrite(final @NotNull Entries entries, final long expiry) throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+
+    final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    final ByteBuffer buffer = ByteBuffer.allocate(BUFFERED_RECORDS * RECORD_SIZE);
+    long written = 0L;
+    try (final FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+      StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      buffer.putInt(MAGIC).putInt(VERSION).putLong(key0).putLong(key1);
+      for (int index = 0; index < entries.keys.length; index++) {
+        final long fingerprint = entries.keys[index];
+        if (fingerprint == Entries.EMPTY || entries.timestamps[index] < expiry) continue;
+        if (buffer.remaining() < RECORD_SIZE) {
+          write(channel, buffer);
+        }
+        buffer.putLong(fingerprint).putLong(entries.timestamps[index]);
+        written++;
+      }
+      write(channel, buffer);
+      channel.force(false);
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    records = written;
+    channel = FileChannel.open(path, StandardOpenOption.WRITE);
+    channel.position(channel.size());
+  }
+
+  private static void write(final @NotNull FileChannel channel, final @NotNull ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Open-addressing map of fingerprints to timestamps that is only used while reading the file
+   */
+  private static final class Entries {
+    private static final long EMPTY = 0L;
+
+    private long[] keys = new long[1 << 10];
+    private long[] timestamps = new long[1 << 10];
+    private int size;
+
+    interface Consumer {
+      void accept(final long fingerprint, final long timestamp);
+    }
+
+    void put(final long fingerprint, final long timestamp) {
+      if ((size + 1) * 3L > keys.length * 2L) {
+        resize(keys.length << 1);
+      }
+      final int index = indexOf(keys, fingerprint);
+      if (keys[index] == EMPTY) {
+        keys[index] = fingerprint;
+        size++;
+      }
+      timestamps[index] = timestamp;
+    }
+
+    void remove(final long fingerprint) {
+      final int mask = keys.length - 1;
+      int index = indexOf(keys, fingerprint);
+      if (keys[index] == EMPTY) return;
+      size--;
+      // Shift the following entries back, so that no probe sequence is interrupted
+      for (int next = (index + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+        final int home = mix(keys[next]) & mask;
+        if (((next - home) & mask) >= ((next - index) & mask)) {
+          keys[index] = keys[next];
+          timestamps[index] = timestamps[next];
+          index = next;
+        }
+      }
+      keys[index] = EMPTY;
+    }
+
+    /**
+     * @return Number of entries that haven't expired yet
+     */
+    long count(final long expiry, final @NotNull LongConsumer expired) {
+      long count = 0L;
+      for (int index = 0; index < keys.length; index++) {
+        if (keys[index] == EMPTY) continue;
+        if (timestamps[index] < expiry) {
+          expired.accept(keys[index]);
+        } else {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    void forEach(final @NotNull Consumer consumer) {
+      for (int index = 0; index < keys.length; index++) {
+        if (keys[index] != EMPTY) {
+          consumer.accept(keys[index], timestamps[index]);
+        }
+      }
+    }
+
+    private void resize(final int capacity) {
+      final long[] oldKeys = keys, oldTimestamps = timestamps;
+      keys = new long[capacity];
+      timestamps = new long[capacity];
+      for (int index = 0; index < oldKeys.length; index++) {
+        if (oldKeys[index] == EMPTY) continue;
+        final int target = indexOf(keys, oldKeys[index]);
+        keys[target] = oldKeys[index];
+        timestamps[target] = oldTimestamps[index];
+      }
+    }
+
+    private static int indexOf(final long @NotNull [] keys, final long fingerprint) {
+      final int mask = keys.length - 1;
+      int index = mix(fingerprint) & mask;
+      while (keys[index] != EMPTY && keys[index] != fingerprint) {
+        index = (index + 1) & mask;
+      }
+      return index;
+    }
+
+    private static int mix(final long fingerprint) {
+      final long hash = fingerprint * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32));
+    }
+  }
+}
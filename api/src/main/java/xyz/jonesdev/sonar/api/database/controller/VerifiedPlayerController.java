@@ -18,6 +18,10 @@
 package xyz.jonesdev.sonar.api.database.controller;
 
 import com.alessiodp.libby.LibraryManager;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
@@ -25,35 +29,103 @@
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.table.TableUtils;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Range;
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.database.model.FingerprintKey;
+import xyz.jonesdev.sonar.api.database.model.LegacyVerifiedPlayer;
 import xyz.jonesdev.sonar.api.database.model.VerifiedPlayer;
+import xyz.jonesdev.sonar.api.fingerprint.FingerprintFilter;
+import xyz.jonesdev.sonar.api.fingerprint.FingerprintSet;
 import xyz.jonesdev.sonar.api.fingerprint.FingerprintingUtil;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.security.SecureRandom;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public final class VerifiedPlayerController {
-  @Getter
-  private final Set<String> cache = Collections.synchronizedSet(new HashSet<>());
+  // Number of threads that look up fingerprints in the database while logins are waiting
+  private static final int LOOKUP_THREADS = Integer.getInteger("sonar.verified.lookup-threads", 2);
+  // Maximum number of lookups that can wait for a lookup thread; further logins are treated as not verified
+  private static final int LOOKUP_QUEUE_SIZE = Integer.getInteger("sonar.verified.lookup-queue-size", 1024);
+  // Interval in which queued writes are flushed to the database
+  private static final long WRITE_INTERVAL = Long.getLong("sonar.verified.write-interval-ms", 1000L);
+  // Maximum number of recently seen verified fingerprints that are kept in memory
+  private static final long HOT_CACHE_SIZE = Long.getLong("sonar.verified.hot-cache-size", 65536L);
+  // Number of fingerprints that are read from the database per query while building the filter
+  private static final int PAGE_SIZE = Integer.getInteger("sonar.verified.page-size", 10000);
+  private static final long MINIMUM_FILTER_CAPACITY = 1L << 16;
+  private static final CompletableFuture<Boolean> VERIFIED = CompletableFuture.completedFuture(true);
+  private static final CompletableFuture<Boolean> NOT_VERIFIED = CompletableFuture.completedFuture(false);
+
+  // Without a database, every verified player is kept in memory
+  private final FingerprintSet cache = new FingerprintSet();
+  // With a database, only the filter and recently seen verified players are kept in memory
+  private volatile @Nullable FingerprintFilter filter, pendingFilter;
+  // Maps fingerprints to the time they were verified at, so they expire like the database entries
+  private final Cache<Long, Long> hotCache = Caffeine.newBuilder()
+    .maximumSize(HOT_CACHE_SIZE)
+    .expireAfter(new Expiry<Long, Long>() {
+      @Override
+      public long expireAfterCreate(final @NotNull Long fingerprint, final @NotNull Long timestamp,
+                                    final long currentTime) {
+        final long expiry = timestamp + TimeUnit.DAYS.toMillis(maximumAge) - System.currentTimeMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(expiry, 0L));
+      }
+
+      @Override
+      public long expireAfterUpdate(final @NotNull Long fingerprint, final @NotNull Long timestamp,
+                                    final long currentTime, final long currentDuration) {
+        return expireAfterCreate(fingerprint, timestamp, currentTime);
+      }
+
+      @Override
+      public long expireAfterRead(final @NotNull Long fingerprint, final @NotNull Long timestamp,
+                                  final long currentTime, final long currentDuration) {
+        return currentDuration;
+      }
+    })
+    .recordStats()
+    .build();
+  private final ConcurrentMap<Long, CompletableFuture<Boolean>> pendingLookups = new ConcurrentHashMap<>();
+  private final AtomicLong verifiedCount = new AtomicLong();
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder filterRejections = new LongAdder();
+  private final LongAdder databaseLookups = new LongAdder();
+  private final LongAdder databaseHits = new LongAdder();
+  // Fingerprints of older versions that haven't been migrated yet
+  private final FingerprintSet legacyCache = new FingerprintSet();
   private @Nullable ConnectionSource connectionSource;
   private Dao<VerifiedPlayer, Integer> dao;
-  private QueryBuilder<VerifiedPlayer, Integer> queryBuilder;
+  private @Nullable Dao<LegacyVerifiedPlayer, Integer> legacyDao;
   @Getter
   private final @NotNull SonarConfiguration.Database.Type cachedDatabaseType;
-  private final ExecutorService updateService = Executors.newSingleThreadExecutor();
+  private final ScheduledExecutorService updateService = Executors.newSingleThreadScheduledExecutor();
+  private @Nullable VerifiedPlayerWriteBuffer writeBuffer;
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  // Only used if the database type is LOCAL
+  private volatile @Nullable LocalVerifiedPlayerStore localStore;
+  private final ExecutorService lookupService = new ThreadPoolExecutor(LOOKUP_THREADS, LOOKUP_THREADS,
+    0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(LOOKUP_QUEUE_SIZE));
+  // Adds hold the read lock while they put the fingerprint into the filters and queue the write,
+  // so a rebuild can't publish its new filter in between and then miss the write when reading the database
+  private final ReadWriteLock filterLock = new ReentrantReadWriteLock();
   @Getter
   private int maximumAge;
 
@@ -66,6 +138,27 @@ public VerifiedPlayerController(final @NotNull LibraryManager libraryManager) {
       return;
     }
 
+    // The local store keeps every verified player in memory and doesn't need a driver
+    if (cachedDatabaseType == SonarConfiguration.Database.Type.LOCAL) {
+      maximumAge = database.getMaximumAge();
+      final File file = new File(Sonar.get0().getConfig().getPluginFolder(),
+        Sonar.get0().getConfig().getGeneralConfig().getString("database.filename") + ".bin");
+      final LocalVerifiedPlayerStore localStore = new LocalVerifiedPlayerStore(file.toPath());
+      try {
+        final long start = System.currentTimeMillis();
+        localStore.load(expiryTime(maximumAge), cache::add);
+        FingerprintingUtil.setKey(localStore.getKey0(), localStore.getKey1());
+        this.localStore = localStore;
+        Sonar.get0().getLogger().info("Loaded {} verified players in {}ms.",
+          cache.size(), System.currentTimeMillis() - start);
+        // Regularly write new verified players to the file
+        updateService.scheduleWithFixedDelay(this::flushWrites, WRITE_INTERVAL, WRITE_INTERVAL, TimeUnit.MILLISECONDS);
+      } catch (IOException exception) {
+        exception.printStackTrace(System.err);
+      }
+      return;
+    }
+
     // Make sure to only load the driver once per database type
     if (!cachedDatabaseType.isLoaded()) {
       Sonar.get0().getLogger().info("Loading {} driver version {}",
@@ -108,10 +201,20 @@ public VerifiedPlayerController(final @NotNull LibraryManager libraryManager) {
          */
       }
 
+      // The key has to be known before the first fingerprint is calculated
+      loadFingerprintKey(connectionSource);
+
       dao = DaoManager.createDao(connectionSource, VerifiedPlayer.class);
-      queryBuilder = dao.queryBuilder();
+      writeBuffer = new VerifiedPlayerWriteBuffer(connectionSource, cachedDatabaseType.getDatabaseType());
       maximumAge = database.getMaximumAge();
 
+      // Only keep track of legacy fingerprints if an older version of Sonar stored any
+      final Dao<LegacyVerifiedPlayer, Integer> legacyDao = DaoManager.createDao(connectionSource,
+        LegacyVerifiedPlayer.class);
+      if (legacyDao.isTableExists()) {
+        this.legacyDao = legacyDao;
+      }
+
       // Make sure to run the clean task and the caching task in the same thread
       // https://github.com/jonesdevelopment/sonar/issues/150
       updateService.execute(() -> {
@@ -119,26 +222,202 @@ public VerifiedPlayerController(final @NotNull LibraryManager libraryManager) {
           try {
             // Make sure to clear all outdated entries first
             clearOld(maximumAge, false);
-            // Add all entries from the database to the cache
-            dao.queryForAll().forEach(verifiedPlayer -> cache.add(verifiedPlayer.getFingerprint()));
+            // Only the filter holds every fingerprint; the actual entries stay in the database.
+            // Until it is ready, logins of players that aren't in the hot cache are looked up in the database.
+            rebuildFilter(true);
+            if (this.legacyDao != null) {
+              try (final CloseableIterator<LegacyVerifiedPlayer> iterator = this.legacyDao.iterator(
+                this.legacyDao.queryBuilder().selectColumns("fingerprint").prepare())) {
+                while (iterator.hasNext()) {
+                  legacyCache.add(FingerprintingUtil.toLong(iterator.next().getFingerprint()));
+                }
+              } catch (Exception exception) {
+                throw exception instanceof SQLException ? (SQLException) exception : new SQLException(exception);
+              }
+              if (legacyCache.size() > 0) {
+                Sonar.get0().getLogger().info("Migrating {} verified players from an older version once they join.",
+                  legacyCache.size());
+              }
+            }
           } catch (SQLException exception) {
             exception.printStackTrace(System.err);
           }
         }
       });
+      // Regularly flush queued writes, even if there are only a few of them
+      updateService.scheduleWithFixedDelay(this::flushWrites, WRITE_INTERVAL, WRITE_INTERVAL, TimeUnit.MILLISECONDS);
     } catch (SQLException exception) {
       exception.printStackTrace(System.err);
     }
   }
 
+  /**
+   * Writes all queued adds and removes to the database; only runs on the update service
+   */
+  private void flushWrites() {
+    flushRequested.set(false);
+    if (localStore != null) {
+      try {
+        localStore.flush();
+      } catch (IOException exception) {
+        exception.printStackTrace(System.err);
+      }
+      return;
+    }
+    if (connectionSource == null || writeBuffer == null) return;
+    try {
+      // Rebuild the filter once it is full, so the false positive rate stays low
+      if (verifiedCount.addAndGet(writeBuffer.flush()) > filterCapacity()) {
+        rebuildFilter();
+      }
+    } catch (SQLException exception) {
+      exception.printStackTrace(System.err);
+    }
+  }
+
+  private void queueWrite(final @NotNull VerifiedPlayerWriteBuffer writeBuffer, final boolean queued) {
+    queueWrite(queued, writeBuffer.getDropped(), writeBuffer.size() >= VerifiedPlayerWriteBuffer.BATCH_SIZE);
+  }
+
+  private void queueWrite(final @NotNull LocalVerifiedPlayerStore localStore, final boolean queued) {
+    queueWrite(queued, localStore.getDropped(), localStore.size() >= LocalVerifiedPlayerStore.BUFFERED_RECORDS);
+  }
+
+  private void queueWrite(final boolean queued, final @NotNull LongAdder droppedWrites, final boolean fullBatch) {
+    if (!queued) {
+      // Only warn once in a while, since this can happen a lot while the database is unreachable
+      final long dropped = droppedWrites.sum();
+      if ((dropped & (dropped - 1)) == 0) {
+        Sonar.get0().getLogger().warn("The database can't keep up; dropped {} writes of verified players.", dropped);
+      }
+    }
+    // Don't wait for the next interval if a full batch is ready
+    if (fullBatch && flushRequested.compareAndSet(false, true)) {
+      try {
+        updateService.execute(this::flushWrites);
+      } catch (RejectedExecutionException ignored) {
+        // The controller has already been closed
+      }
+    }
+  }
+
+  private void rebuildFilter() throws SQLException {
+    rebuildFilter(false);
+  }
+
+  /**
+   * Builds a new filter from all fingerprints in the database and replaces the current one.
+   * The filter is sized for twice the number of entries, so it can grow before it has to be rebuilt again.
+   * The fingerprints are read page by page using the primary key, so no query has to skip over
+   * already loaded rows and only a single page of entries is kept in memory at once.
+   *
+   * @param reportProgress Whether the progress should be logged
+   */
+  private void rebuildFilter(final boolean reportProgress) throws SQLException {
+    final long expected = dao.countOf() + (writeBuffer == null ? 0 : writeBuffer.size());
+    final FingerprintFilter newFilter = new FingerprintFilter(Math.max(MINIMUM_FILTER_CAPACITY, expected << 1));
+    // New players that are verified in the meantime are added to both filters
+    filterLock.writeLock().lock();
+    try {
+      pendingFilter = newFilter;
+    } finally {
+      filterLock.writeLock().unlock();
+    }
+    try {
+      // Players that were verified before have to be in the database before we read it
+      if (writeBuffer != null) {
+        writeBuffer.flush();
+      }
+      final long total = dao.countOf();
+      verifiedCount.set(total);
+      long loaded = 0L, reported = 0L;
+      int lastId = 0, page;
+      do {
+        page = 0;
+        try (final CloseableIterator<VerifiedPlayer> iterator = dao.iterator(dao.queryBuilder()
+          .selectColumns("id", "fingerprint")
+          .orderBy("id", true)
+          .limit((long) PAGE_SIZE)
+          .where().gt("id", lastId)
+          .prepare())) {
+          while (iterator.hasNext()) {
+            final VerifiedPlayer player = iterator.next();
+            newFilter.put(player.getFingerprint());
+            lastId = player.getId();
+            page++;
+          }
+        }
+        loaded += page;
+        // Only log every 10 percent to avoid spamming the console
+        if (reportProgress && page == PAGE_SIZE && (loaded - reported) * 10 >= total) {
+          reported = loaded;
+          Sonar.get0().getLogger().info("Loading verified players... ({}/{}, {}%)",
+            loaded, total, Math.min(100L, loaded * 100 / Math.max(total, 1L)));
+        }
+      } while (page == PAGE_SIZE);
+      filter = newFilter;
+      if (reportProgress && loaded > 0L) {
+        Sonar.get0().getLogger().info("Loaded {} verified players.", loaded);
+      }
+    } catch (Exception exception) {
+      throw exception instanceof SQLException ? (SQLException) exception : new SQLException(exception);
+    } finally {
+      pendingFilter = null;
+    }
+  }
+
+  /**
+   * Loads the secret key of the fingerprint hash from the database or generates a new one
+   */
+  private static void loadFingerprintKey(final @NotNull ConnectionSource connectionSource) throws SQLException {
+    TableUtils.createTableIfNotExists(connectionSource, FingerprintKey.class);
+    final Dao<FingerprintKey, Integer> keyDao = DaoManager.createDao(connectionSource, FingerprintKey.class);
+    FingerprintKey key = keyDao.queryForId(FingerprintKey.ID);
+    if (key == null) {
+      final SecureRandom random = new SecureRandom();
+      try {
+        keyDao.create(new FingerprintKey(random.nextLong(), random.nextLong()));
+      } catch (SQLException ignored) {
+        // Another proxy sharing this database might have created the key in the meantime
+      }
+      key = keyDao.queryForId(FingerprintKey.ID);
+    }
+    FingerprintingUtil.setKey(key.getKey0(), key.getKey1());
+  }
+
   /**
    * Closes the connection if instantiated
    */
   public void close() {
+    if (localStore != null) {
+      lookupService.shutdown();
+      updateService.shutdown();
+      try {
+        // Wait for the last scheduled flush to finish before closing the file
+        updateService.awaitTermination(30L, TimeUnit.SECONDS);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
+      try {
+        localStore.close();
+      } catch (IOException exception) {
+        exception.printStackTrace(System.err);
+      }
+      localStore = null;
+    }
     // The connection source will always be null if the database type is NONE.
     if (connectionSource != null) {
-      // Shut down the update service before letting it re-use the connection.
+      lookupService.shutdown();
+      // Flush all pending writes and shut down the update service before closing the connection.
+      updateService.execute(this::flushWrites);
       updateService.shutdown();
+      try {
+        if (!updateService.awaitTermination(30L, TimeUnit.SECONDS)) {
+          Sonar.get0().getLogger().warn("Could not write all verified players to the database in time.");
+        }
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
       try {
         connectionSource.close();
       } catch (Exception exception) {
@@ -150,52 +429,193 @@ public void close() {
   }
 
   /**
-   * Clear all old entries using the given timestamp
+   * Clear all old entries using the given timestamp.
+   * Recently seen players expire from memory on their own, but the filter has to be rebuilt.
+   *
+   * @param rebuildFilter Whether the filter should be rebuilt to get rid of the removed entries
    */
   public void clearOld(final @Range(from = 1, to = 365) int maximumAge,
-                       final boolean removeExisting) throws SQLException {
-    final long timestamp = Instant.now().minus(maximumAge, ChronoUnit.DAYS).getEpochSecond() * 1000L;
-
-    final List<VerifiedPlayer> oldEntries = queryBuilder.where()
-      .lt("timestamp", new Timestamp(timestamp))
-      .query();
-
-    if (oldEntries != null && !oldEntries.isEmpty()) {
-      for (final VerifiedPlayer player : oldEntries) {
-        dao.delete(player);
-        if (removeExisting) {
-          cache.remove(player.getFingerprint());
-        }
+                       final boolean rebuildFilter) throws SQLException {
+    final LocalVerifiedPlayerStore localStore = this.localStore;
+    if (localStore != null) {
+      // Compact the file on the update service, so it never runs concurrently with a flush
+      try {
+        updateService.execute(() -> {
+          final long before = cache.size();
+          try {
+            localStore.compact(expiryTime(maximumAge), cache::remove);
+          } catch (IOException exception) {
+            exception.printStackTrace(System.err);
+            return;
+          }
+          if (before > cache.size()) {
+            Sonar.get0().getLogger().info("Removed {} entries older than {} days.", before - cache.size(), maximumAge);
+          }
+        });
+      } catch (RejectedExecutionException ignored) {
+        // The controller has already been closed
       }
-      Sonar.get0().getLogger().info("Removed {} database entries older than {} days.",
-        oldEntries.size(), maximumAge);
+      return;
     }
+
+    if (writeBuffer == null) return;
+    final Timestamp timestamp = new Timestamp(expiryTime(maximumAge));
+
+    final long deleted = writeBuffer.deleteOlderThan(VerifiedPlayerWriteBuffer.TABLE_NAME, timestamp);
+    if (deleted > 0L) {
+      verifiedCount.addAndGet(-deleted);
+      Sonar.get0().getLogger().info("Removed {} database entries older than {} days.", deleted, maximumAge);
+    }
+
+    if (legacyDao != null) {
+      writeBuffer.deleteOlderThan(legacyDao.getTableInfo().getTableName(), timestamp);
+    }
+
+    // Removed fingerprints can't be removed from the filter, so rebuild it from time to time
+    if (rebuildFilter) {
+      rebuildFilter();
+    }
+  }
+
+  private static long expiryTime(final int maximumAge) {
+    return Instant.now().minus(maximumAge, ChronoUnit.DAYS).toEpochMilli();
+  }
+
+  /**
+   * Checks if the player with the given username and IP address is verified.
+   * Players that were verified by an older version of Sonar are migrated to the new fingerprint.
+   *
+   * @return Future that is already completed unless the database has to be queried
+   */
+  public @NotNull CompletableFuture<Boolean> isVerified(final @NotNull String username,
+                                                        final @NotNull InetAddress inetAddress) {
+    return isVerified(FingerprintingUtil.getFingerprint(username, inetAddress), username, inetAddress);
+  }
+
+  /**
+   * @param fingerprint Fingerprint of the given username and IP address
+   * @see #isVerified(String, InetAddress)
+   */
+  public @NotNull CompletableFuture<Boolean> isVerified(final long fingerprint,
+                                                        final @NotNull String username,
+                                                        final @NotNull InetAddress inetAddress) {
+    lookups.increment();
+    if (isInMemory()) {
+      return cache.contains(fingerprint) ? VERIFIED : NOT_VERIFIED;
+    }
+    if (hotCache.getIfPresent(fingerprint) != null) {
+      return VERIFIED;
+    }
+    // The filter is only missing while it is being built for the first time
+    final FingerprintFilter filter = this.filter;
+    if (filter != null && !filter.mightContain(fingerprint)) {
+      filterRejections.increment();
+      return migrateLegacy(fingerprint, username, inetAddress) ? VERIFIED : NOT_VERIFIED;
+    }
+
+    // Share the lookup with other logins of the same player
+    final CompletableFuture<Boolean> future = new CompletableFuture<>();
+    final CompletableFuture<Boolean> pending = pendingLookups.putIfAbsent(fingerprint, future);
+    if (pending != null) {
+      return pending;
+    }
+    try {
+      lookupService.execute(() -> {
+        try {
+          databaseLookups.increment();
+          final VerifiedPlayer player = queryBuilder().selectColumns("timestamp")
+            .where().eq("fingerprint", fingerprint).queryForFirst();
+          final boolean verified = player != null;
+          if (verified) {
+            databaseHits.increment();
+            hotCache.put(fingerprint, player.getTimestamp().getTime());
+          }
+          future.complete(verified || migrateLegacy(fingerprint, username, inetAddress));
+        } catch (Throwable throwable) {
+          future.completeExceptionally(throwable);
+        } finally {
+          pendingLookups.remove(fingerprint, future);
+        }
+      });
+    } catch (RejectedExecutionException exception) {
+      // The controller has already been closed, or too many lookups are waiting already.
+      // Don't let logins pile up while the database can't keep up.
+      pendingLookups.remove(fingerprint, future);
+      future.complete(false);
+    }
+    return future;
+  }
+
+  private @NotNull QueryBuilder<VerifiedPlayer, Integer> queryBuilder() {
+    // Query builders are not thread-safe, so every lookup thread needs its own one
+    return dao.queryBuilder();
+  }
+
+  private boolean migrateLegacy(final long fingerprint,
+                                final @NotNull String username,
+                                final @NotNull InetAddress inetAddress) {
+    // Don't calculate the legacy fingerprint if there is nothing left to migrate
+    if (legacyCache.size() == 0) {
+      return false;
+    }
+    final String legacyFingerprint = FingerprintingUtil.getLegacyFingerprint(username, inetAddress.getHostAddress());
+    if (!legacyCache.remove(FingerprintingUtil.toLong(legacyFingerprint))) {
+      return false;
+    }
+    // Migrate the player to the new fingerprint
+    add(new VerifiedPlayer(fingerprint, System.currentTimeMillis()));
+    removeLegacy(legacyFingerprint);
+    return true;
+  }
+
+  /**
+   * First, remove the player from the local cache and then,
+   * secondly, asynchronously remove the player from the database.
+   */
+  public void remove(final @NotNull String username, final @NotNull InetAddress inetAddress) {
+    final String legacyFingerprint = FingerprintingUtil.getLegacyFingerprint(username, inetAddress.getHostAddress());
+    if (legacyCache.remove(FingerprintingUtil.toLong(legacyFingerprint))) {
+      removeLegacy(legacyFingerprint);
+    }
+    remove(FingerprintingUtil.getFingerprint(username, inetAddress));
   }
 
   /**
    * First, remove the player from the local cache and then,
-   * secondly, asynchronously add the player to the database.
+   * secondly, asynchronously remove the player from the database.
    *
    * @param fingerprint Fingerprint of the verified player
    */
-  public void remove(final @NotNull String fingerprint) {
+  public void remove(final long fingerprint) {
     cache.remove(fingerprint);
+    hotCache.invalidate(fingerprint);
 
-    // Don't try to update the column if the database type is NONE
-    if (cachedDatabaseType == SonarConfiguration.Database.Type.NONE) {
+    // Don't try to update the column if the database type is NONE or LOCAL
+    if (isInMemory()) {
+      // Only queue the removal; the file is written by the update service
+      final LocalVerifiedPlayerStore localStore = this.localStore;
+      if (localStore != null) {
+        queueWrite(localStore, localStore.remove(fingerprint));
+      }
       return;
     }
 
+    if (writeBuffer != null) {
+      queueWrite(writeBuffer, writeBuffer.remove(fingerprint));
+    }
+  }
+
+  private void removeLegacy(final @NotNull String legacyFingerprint) {
     updateService.execute(() -> {
-      if (connectionSource != null) {
+      if (connectionSource != null && legacyDao != null) {
         try {
-          final List<VerifiedPlayer> verifiedPlayer = queryBuilder.where()
-            .eq("fingerprint", fingerprint)
+          final List<LegacyVerifiedPlayer> verifiedPlayer = legacyDao.queryBuilder().where()
+            .eq("fingerprint", legacyFingerprint)
             .query();
 
           if (verifiedPlayer != null) {
-            for (final VerifiedPlayer player : verifiedPlayer) {
-              dao.delete(player);
+            for (final LegacyVerifiedPlayer player : verifiedPlayer) {
+              legacyDao.delete(player);
             }
           }
         } catch (SQLException exception) {
@@ -206,10 +626,10 @@ public void remove(final @NotNull String fingerprint) {
   }
 
   /**
-   * Creates a new VerifiedPlayer model from the given username, host address, and timestamp
+   * Creates a new VerifiedPlayer model from the given username, IP address, and timestamp
    */
-  public void add(final @NotNull String username, final @NotNull String hostAddress, final long timestamp) {
-    final String fingerprint = FingerprintingUtil.getFingerprint(username, hostAddress);
+  public void add(final @NotNull String username, final @NotNull InetAddress inetAddress, final long timestamp) {
+    final long fingerprint = FingerprintingUtil.getFingerprint(username, inetAddress);
     // Add a new VerifiedPlayer object from the given parameters to the database
     add(new VerifiedPlayer(fingerprint, timestamp));
   }
@@ -218,22 +638,50 @@ public void add(final @NotNull String username, final @NotNull String hostAddres
    * Caches the player locally and then adds the player to the database
    */
   public void add(final @NotNull VerifiedPlayer player) {
-    cache.add(player.getFingerprint());
-
-    // Don't try to update the column if the database type is NONE
-    if (cachedDatabaseType == SonarConfiguration.Database.Type.NONE) {
+    // Don't try to update the column if the database type is NONE or LOCAL
+    if (isInMemory()) {
+      cache.add(player.getFingerprint());
+      // This is called on the event loop, so only queue the record; the file is written by the update service
+      final LocalVerifiedPlayerStore localStore = this.localStore;
+      if (localStore != null) {
+        queueWrite(localStore, localStore.add(player.getFingerprint(), player.getTimestamp().getTime()));
+      }
       return;
     }
 
-    updateService.execute(() -> {
-      if (connectionSource != null) {
-        try {
-          dao.createIfNotExists(player);
-        } catch (SQLException exception) {
-          exception.printStackTrace(System.err);
-        }
+    hotCache.put(player.getFingerprint(), player.getTimestamp().getTime());
+    final boolean queued;
+    filterLock.readLock().lock();
+    try {
+      // Read the pending filter first; once it is gone, the current filter is already the new one
+      final FingerprintFilter pendingFilter = this.pendingFilter, filter = this.filter;
+      if (filter != null) {
+        filter.put(player.getFingerprint());
       }
-    });
+      if (pendingFilter != null) {
+        pendingFilter.put(player.getFingerprint());
+      }
+      queued = writeBuffer != null && writeBuffer.add(player.getFingerprint(), player.getTimestamp().getTime());
+    } finally {
+      filterLock.readLock().unlock();
+    }
+
+    if (writeBuffer != null) {
+      queueWrite(writeBuffer, queued);
+    }
+  }
+
+  /**
+   * @return Whether every verified player is kept in memory
+   */
+  private boolean isInMemory() {
+    return cachedDatabaseType == SonarConfiguration.Database.Type.NONE
+      || cachedDatabaseType == SonarConfiguration.Database.Type.LOCAL;
+  }
+
+  private long filterCapacity() {
+    final FingerprintFilter filter = this.filter;
+    return filter == null ? Long.MAX_VALUE : filter.getCapacity();
   }
 
   /**
@@ -242,15 +690,74 @@ public void add(final @NotNull VerifiedPlayer player) {
    */
   public void clearAll() {
     cache.clear();
+    legacyCache.clear();
+    hotCache.invalidateAll();
+
+    if (localStore != null) {
+      try {
+        localStore.clear();
+      } catch (IOException exception) {
+        exception.printStackTrace(System.err);
+      }
+    }
 
     // Delete the entire table from the database, if necessary
     if (connectionSource != null
       && cachedDatabaseType != SonarConfiguration.Database.Type.NONE) {
+      if (writeBuffer != null) {
+        writeBuffer.clear();
+      }
+      filter = new FingerprintFilter(MINIMUM_FILTER_CAPACITY);
+      verifiedCount.set(0L);
       try {
         dao.deleteBuilder().delete();
+        if (legacyDao != null) {
+          legacyDao.deleteBuilder().delete();
+        }
       } catch (SQLException exception) {
         exception.printStackTrace(System.err);
       }
     }
   }
+
+  /**
+   * @return Number of verified players
+   */
+  public long getSize() {
+    return isInMemory() ? cache.size() : verifiedCount.get();
+  }
+
+  /**
+   * @return Memory and hit-rate statistics of the verified player store
+   */
+  public @NotNull Statistics getStatistics() {
+    final FingerprintFilter filter = this.filter;
+    final long databaseLookups = this.databaseLookups.sum(), databaseHits = this.databaseHits.sum();
+    return new Statistics(
+      getSize(),
+      filter == null ? 0L : filter.getMemoryUsage(),
+      hotCache.estimatedSize(),
+      hotCache.stats().hitRate(),
+      lookups.sum(),
+      filterRejections.sum(),
+      databaseLookups,
+      databaseHits,
+      // Share of database lookups that didn't find the fingerprint
+      databaseLookups == 0L ? 0D : (databaseLookups - databaseHits) / (double) databaseLookups);
+  }
+
+  @Getter
+  @ToString
+  @RequiredArgsConstructor
+  public static final class Statistics {
+    private final long verified;
+    private final long filterMemory;
+    private final long hotCacheSize;
+    private final double hotCacheHitRate;
+    private final long lookups;
+    private final long filterRejections;
+    private final long databaseLookups;
+    private final long databaseHits;
+    private final double falsePositiveRate;
+  }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.database.controller;
+
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.jdbc.db.PostgresDatabaseType;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer for verified players.
+ * <br>
+ * Adds and removes are queued and written in batches: all writes of a batch are coalesced per fingerprint
+ * and written using multi-row INSERT and DELETE statements inside a single transaction.
+ * The buffer is bounded; writes that don't fit are dropped, since the players stay verified in memory.
+ */
+final class VerifiedPlayerWriteBuffer {
+  private static final int CAPACITY = Integer.getInteger("sonar.verified.write-buffer-size", 16384);
+  static final int BATCH_SIZE = Integer.getInteger("sonar.verified.write-batch-size", 500);
+  static final String TABLE_NAME = "sonar_verified_players";
+  // Maximum number of rows that are deleted by a single statement during the cleanup
+  private static final int CLEANUP_CHUNK_SIZE = Integer.getInteger("sonar.verified.cleanup-chunk-size", 5000);
+
+  private final BlockingQueue<Write> queue = new ArrayBlockingQueue<>(CAPACITY);
+  // Batch that couldn't be written; it is older than every queued write, so it is retried first
+  private volatile @Nullable Map<Long, Write> failedBatch;
+  @Getter
+  private final LongAdder dropped = new LongAdder();
+  private final @NotNull ConnectionSource connectionSource;
+  private final @NotNull DatabaseType databaseType;
+  private final String deletePrefix, selectPrefix, insertPrefix;
+
+  VerifiedPlayerWriteBuffer(final @NotNull ConnectionSource connectionSource,
+                            final @NotNull DatabaseType databaseType) {
+    this.connectionSource = connectionSource;
+    this.databaseType = databaseType;
+    final String table = escape(databaseType, TABLE_NAME);
+    final String fingerprint = escape(databaseType, "fingerprint");
+    final String timestamp = escape(databaseType, "timestamp");
+    this.deletePrefix = "DELETE FROM " + table + " WHERE " + fingerprint + " IN ";
+    this.selectPrefix = "SELECT " + fingerprint + " FROM " + table + " WHERE " + fingerprint + " IN ";
+    this.insertPrefix = "INSERT INTO " + table + " (" + fingerprint + ", " + timestamp + ") VALUES ";
+  }
+
+  private static @NotNull String escape(final @NotNull DatabaseType databaseType, final @NotNull String name) {
+    final StringBuilder builder = new StringBuilder();
+    databaseType.appendEscapedEntityName(builder, name);
+    return builder.toString();
+  }
+
+  @RequiredArgsConstructor
+  private static final class Write {
+    private final long fingerprint;
+    // Null if the fingerprint should be removed
+    private final @Nullable Timestamp timestamp;
+  }
+
+  /**
+   * @return false if the buffer is full and the write has been dropped
+   */
+  boolean add(final long fingerprint, final long timestamp) {
+    return offer(new Write(fingerprint, new Timestamp(timestamp)));
+  }
+
+  /**
+   * @return false if the buffer is full and the write has been dropped
+   */
+  boolean remove(final long fingerprint) {
+    return offer(new Write(fingerprint, null));
+  }
+
+  private boolean offer(final @NotNull Write write) {
+    if (queue.offer(write)) {
+      return true;
+    }
+    dropped.increment();
+    return false;
+  }
+
+  int size() {
+    return queue.size();
+  }
+
+  void clear() {
+    queue.clear();
+    failedBatch = null;
+  }
+
+  /**
+   * Writes all queued writes to the database
+   *
+   * @return Change of the number of rows in the table
+   */
+  long flush() throws SQLException {
+    long delta = 0L;
+    final List<Write> drained = new ArrayList<>(BATCH_SIZE);
+    while (true) {
+      final Map<Long, Write> failedBatch = this.failedBatch;
+      this.failedBatch = null;
+      // Only the last write of every fingerprint matters
+      final Map<Long, Write> batch = failedBatch != null ? failedBatch : new LinkedHashMap<>(BATCH_SIZE << 1);
+      queue.drainTo(drained, BATCH_SIZE - batch.size());
+      if (batch.isEmpty() && drained.isEmpty()) break;
+      for (final Write write : drained) {
+        batch.put(write.fingerprint, write);
+      }
+      drained.clear();
+      try {
+        delta += write(batch.values());
+      } catch (SQLException exception) {
+        // The transaction has been rolled back, so don't lose the batch
+        this.failedBatch = batch;
+        throw exception;
+      }
+    }
+    return delta;
+  }
+
+  private long write(final @NotNull Collection<Write> batch) throws SQLException {
+    final List<Long> removals = new ArrayList<>();
+    final Map<Long, Timestamp> insertions = new LinkedHashMap<>();
+    for (final Write write : batch) {
+      if (write.timestamp == null) {
+        removals.add(write.fingerprint);
+      } else {
+        insertions.put(write.fingerprint, write.timestamp);
+      }
+    }
+
+    final DatabaseConnection databaseConnection = connectionSource.getReadWriteConnection(TABLE_NAME);
+    try {
+      final Connection connection = (Connection) databaseConnection.getUnderlyingConnection();
+      final boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        long delta = 0L;
+        if (!removals.isEmpty()) {
+          try (final PreparedStatement statement = connection.prepareStatement(deletePrefix + parameters(removals.size()))) {
+            int index = 1;
+            for (final long fingerprint : removals) {
+              statement.setLong(index++, fingerprint);
+            }
+            delta -= statement.executeUpdate();
+          }
+        }
+        if (!insertions.isEmpty()) {
+          // Don't store the same fingerprint twice
+          try (final PreparedStatement statement = connection.prepareStatement(selectPrefix + parameters(insertions.size()))) {
+            int index = 1;
+            for (final long fingerprint : insertions.keySet()) {
+              statement.setLong(index++, fingerprint);
+            }
+            try (final ResultSet resultSet = statement.executeQuery()) {
+              while (resultSet.next()) {
+                insertions.remove(resultSet.getLong(1));
+              }
+            }
+          }
+        }
+        if (!insertions.isEmpty()) {
+          try (final PreparedStatement statement = connection.prepareStatement(insertPrefix + rows(insertions.size()))) {
+            int index = 1;
+            for (final Map.Entry<Long, Timestamp> entry : insertions.entrySet()) {
+              statement.setLong(index++, entry.getKey());
+              statement.setTimestamp(index++, entry.getValue());
+            }
+            delta += statement.executeUpdate();
+          }
+        }
+        connection.commit();
+        return delta;
+      } catch (SQLException exception) {
+        connection.rollback();
+        throw exception;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    } finally {
+      connectionSource.releaseConnection(databaseConnection);
+    }
+  }
+
+  /**
+   * Deletes all rows of the given table that are older than the given timestamp.
+   * The rows are deleted in chunks, so a single statement never locks a large part of the table for long.
+   *
+   * @return Number of deleted rows
+   */
+  long deleteOlderThan(final @NotNull String tableName, final @NotNull Timestamp timestamp) throws SQLException {
+    final String table = escape(databaseType, tableName);
+    final String condition = escape(databaseType, "timestamp") + " < ?";
+    // PostgreSQL doesn't support DELETE ... LIMIT, but it supports LIMIT in subqueries
+    final String sql = databaseType instanceof PostgresDatabaseType
+      ? "DELETE FROM " + table + " WHERE " + escape(databaseType, "id") + " IN (SELECT "
+      + escape(databaseType, "id") + " FROM " + table + " WHERE " + condition + " LIMIT " + CLEANUP_CHUNK_SIZE + ")"
+      : "DELETE FROM " + table + " WHERE " + condition + " LIMIT " + CLEANUP_CHUNK_SIZE;
+
+    long deleted = 0L;
+    final DatabaseConnection databaseConnection = connectionSource.getReadWriteConnection(tableName);
+    try {
+      final Connection connection = (Connection) databaseConnection.getUnderlyingConnection();
+      try (final PreparedStatement statement = connection.prepareStatement(sql)) {
+        int chunk;
+        do {
+          statement.setTimestamp(1, timestamp);
+          chunk = statement.executeUpdate();
+          deleted += chunk;
+        } while (chunk >= CLEANUP_CHUNK_SIZE);
+      }
+    } finally {
+      connectionSource.releaseConnection(databaseConnection);
+    }
+    return deleted;
+  }
+
+  private static @NotNull String parameters(final int count) {
+    final StringBuilder builder = new StringBuilder(count * 3 + 1).append('(');
+    for (int i = 0; i < count; i++) {
+      builder.append(i == 0 ? "?" : ", ?");
+    }
+    return builder.append(')').toString();
+  }
+
+  private static @NotNull String rows(final int count) {
+    final StringBuilder builder = new StringBuilder(count * 10);
+    for (int i = 0; i < count; i++) {
+      builder.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+    }
+    return builder.toString();
+  }
+}
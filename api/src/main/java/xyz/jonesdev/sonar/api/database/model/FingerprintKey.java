@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.database.model;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Secret key of the fingerprint hash; stored in the database, so that all proxies sharing it use the same key
+ */
+@Getter
+@DatabaseTable(tableName = "sonar_fingerprint_key")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public final class FingerprintKey {
+  public static final int ID = 1;
+
+  @DatabaseField(id = true)
+  private int id;
+
+  @DatabaseField(
+    columnName = "key0",
+    canBeNull = false
+  )
+  private long key0;
+
+  @DatabaseField(
+    columnName = "key1",
+    canBeNull = false
+  )
+  private long key1;
+
+  public FingerprintKey(final long key0, final long key1) {
+    this.id = ID;
+    this.key0 = key0;
+    this.key1 = key1;
+  }
+}
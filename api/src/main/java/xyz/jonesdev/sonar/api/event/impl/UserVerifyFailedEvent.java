@@ -21,13 +21,23 @@
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.antibot.FailReason;
 import xyz.jonesdev.sonar.api.antibot.SonarUser;
 import xyz.jonesdev.sonar.api.event.SonarEvent;
 
-@Getter
-@ToString
+@ToString(of = {"user", "failReason"})
 @RequiredArgsConstructor
 public final class UserVerifyFailedEvent implements SonarEvent {
+  @Getter
   private final @NotNull SonarUser user;
-  private final @NotNull String reason;
+  @Getter
+  private final @NotNull FailReason failReason;
+  private final Object @NotNull [] details;
+
+  /**
+   * @return Human-readable description of the failed check, which is only formatted when requested
+   */
+  public @NotNull String getReason() {
+    return failReason.format(details);
+  }
 }
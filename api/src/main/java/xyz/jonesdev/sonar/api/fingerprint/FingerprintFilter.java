@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.fingerprint;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent Bloom filter of 64-bit fingerprints.
+ * <br>
+ * It never forgets a fingerprint, so a negative answer means "definitely not verified".
+ * Positive answers have to be confirmed by the database.
+ * Fingerprints are already keyed hashes, so the bit indexes are derived from the fingerprint
+ * itself using double hashing instead of hashing it again.
+ */
+public final class FingerprintFilter {
+  // 1% false positive rate
+  private static final double BITS_PER_ENTRY = 9.6;
+  private static final int HASH_FUNCTIONS = 7;
+
+  private final AtomicLongArray words;
+  private final long bitMask;
+  @Getter
+  private final long capacity;
+  private final LongAdder size = new LongAdder();
+
+  public FingerprintFilter(final long capacity) {
+    this.capacity = capacity;
+    // Round up to the next power of two, so we can mask instead of dividing
+    final long bits = Math.min(1L << 36, Long.highestOneBit(
+      Math.max(Long.SIZE, (long) (capacity * BITS_PER_ENTRY)) - 1) << 1);
+    this.words = new AtomicLongArray((int) (bits >>> 6));
+    this.bitMask = bits - 1;
+  }
+
+  public void put(final long fingerprint) {
+    final long increment = increment(fingerprint);
+    long hash = fingerprint;
+    boolean changed = false;
+    for (int i = 0; i < HASH_FUNCTIONS; i++, hash += increment) {
+      final long bit = hash & bitMask;
+      final int index = (int) (bit >>> 6);
+      final long mask = 1L << bit;
+      long word;
+      while (((word = words.get(index)) & mask) == 0) {
+        if (words.compareAndSet(index, word, word | mask)) {
+          changed = true;
+          break;
+        }
+      }
+    }
+    if (changed) {
+      size.increment();
+    }
+  }
+
+  public boolean mightContain(final long fingerprint) {
+    final long increment = increment(fingerprint);
+    long hash = fingerprint;
+    for (int i = 0; i < HASH_FUNCTIONS; i++, hash += increment) {
+      final long bit = hash & bitMask;
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return Approximate number of fingerprints in this filter
+   */
+  public long getSize() {
+    return size.sum();
+  }
+
+  /**
+   * @return Number of bytes used by this filter
+   */
+  public long getMemoryUsage() {
+    return (long) words.length() << 3;
+  }
+
+  private static long increment(final long fingerprint) {
+    long hash = fingerprint ^ (fingerprint >>> 31);
+    hash *= 0x9E3779B97F4A7C15L;
+    // An odd increment visits different bits for every hash function
+    return (hash ^ (hash >>> 29)) | 1L;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.fingerprint;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Concurrent open-addressing hash set of 64-bit fingerprints.
+ * <br>
+ * Reads are lock-free and never block; they only see a consistent snapshot of the table
+ * that was published last. Writes are rare (new verifications, database warm-up)
+ * and are serialized by the monitor of this set.
+ * Every fingerprint costs 8 bytes (plus free slots) instead of a string and a hash map node.
+ */
+public final class FingerprintSet {
+  private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+  // Reserved values that are never used as fingerprints
+  static final long EMPTY = 0L, REMOVED = Long.MIN_VALUE;
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private volatile long[] slots = new long[INITIAL_CAPACITY];
+  private volatile int size;
+  // Number of slots that are either used or removed (only accessed while holding the monitor)
+  private int occupied;
+
+  public boolean contains(final long fingerprint) {
+    final long[] slots = this.slots;
+    final int mask = slots.length - 1;
+    for (int index = mix(fingerprint) & mask; ; index = (index + 1) & mask) {
+      final long value = (long) SLOTS.getAcquire(slots, index);
+      if (value == fingerprint) return true;
+      if (value == EMPTY) return false;
+    }
+  }
+
+  public synchronized boolean add(final long fingerprint) {
+    long[] slots = this.slots;
+    // Keep at least a third of all slots empty, so that probing stays short and always terminates
+    if ((occupied + 1) * 3L > slots.length * 2L) {
+      slots = rehash(size * 3L > slots.length ? slots.length << 1 : slots.length);
+    }
+    final int mask = slots.length - 1;
+    int target = -1;
+    for (int index = mix(fingerprint) & mask; ; index = (index + 1) & mask) {
+      final long value = slots[index];
+      if (value == fingerprint) return false;
+      if (value == REMOVED && target < 0) {
+        target = index;
+      } else if (value == EMPTY) {
+        if (target < 0) {
+          target = index;
+          occupied++;
+        }
+        break;
+      }
+    }
+    SLOTS.setRelease(slots, target, fingerprint);
+    size++;
+    return true;
+  }
+
+  public synchronized boolean remove(final long fingerprint) {
+    final long[] slots = this.slots;
+    final int mask = slots.length - 1;
+    for (int index = mix(fingerprint) & mask; ; index = (index + 1) & mask) {
+      final long value = slots[index];
+      if (value == EMPTY) return false;
+      if (value == fingerprint) {
+        // Removed slots keep the probe sequence intact for concurrent readers
+        SLOTS.setRelease(slots, index, REMOVED);
+        size--;
+        return true;
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    slots = new long[INITIAL_CAPACITY];
+    size = 0;
+    occupied = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private long @NotNull [] rehash(final int capacity) {
+    final long[] oldSlots = slots;
+    final long[] newSlots = new long[capacity];
+    final int mask = capacity - 1;
+    for (final long value : oldSlots) {
+      if (value == EMPTY || value == REMOVED) continue;
+      int index = mix(value) & mask;
+      while (newSlots[index] != EMPTY) {
+        index = (index + 1) & mask;
+      }
+      newSlots[index] = value;
+    }
+    occupied = size;
+    // Readers that are still probing the old table simply finish on the old snapshot
+    slots = newSlots;
+    return newSlots;
+  }
+
+  private static int mix(final long fingerprint) {
+    final long hash = fingerprint * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
@@ -18,16 +18,76 @@
 package xyz.jonesdev.sonar.api.fingerprint;
 
 import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.security.SecureRandom;
+
 @UtilityClass
 public class FingerprintingUtil {
+  // Secret key of the keyed hash; replaced by the key that is stored in the database
+  private volatile long key0, key1;
+
+  static {
+    final SecureRandom random = new SecureRandom();
+    key0 = random.nextLong();
+    key1 = random.nextLong();
+  }
+
+  /**
+   * Sets the secret key that is used for all fingerprints.
+   * All proxies that share a database must use the same key.
+   */
+  @ApiStatus.Internal
+  public void setKey(final long key0, final long key1) {
+    FingerprintingUtil.key0 = key0;
+    FingerprintingUtil.key1 = key1;
+  }
 
   /**
-   * Returns a hex string representing a hash of the username and IP address
+   * Returns a keyed 64-bit hash of the username and the raw IP address.
+   * The hash uses the SipHash-2-4 rounds, but not its message padding,
+   * so it doesn't match the output of other SipHash implementations.
+   * The result is never 0 or {@link Long#MIN_VALUE}, since these values are reserved by {@link FingerprintSet}.
    */
-  public @NotNull String getFingerprint(final @NotNull String username,
-                                        final @NotNull String hostAddress) {
+  public long getFingerprint(final @NotNull String username, final @NotNull InetAddress inetAddress) {
+    final SipHash hash = new SipHash(key0, key1);
+    // Usernames are hashed as UTF-16 code units, four per block
+    final int length = username.length();
+    int index = 0;
+    for (; index + 4 <= length; index += 4) {
+      hash.block(username.charAt(index)
+        | (long) username.charAt(index + 1) << 16
+        | (long) username.charAt(index + 2) << 32
+        | (long) username.charAt(index + 3) << 48);
+    }
+    long last = 0L;
+    for (int shift = 0; index < length; index++, shift += 16) {
+      last |= (long) username.charAt(index) << shift;
+    }
+    // The length separates the username from the address
+    hash.block(last ^ (long) length << 56);
+    if (inetAddress instanceof Inet4Address) {
+      // The hash code of an IPv4 address is the address itself; this saves us from copying the address
+      hash.block(inetAddress.hashCode() & 0xFFFFFFFFL);
+    } else {
+      final byte[] address = inetAddress.getAddress();
+      hash.block(toLong(address, 0));
+      hash.block(toLong(address, 8));
+    }
+    final long result = hash.finish();
+    return result == FingerprintSet.EMPTY || result == FingerprintSet.REMOVED ? 1L : result;
+  }
+
+  /**
+   * Returns a hex string representing a hash of the username and IP address.
+   * Only used to migrate fingerprints that were stored by older versions of Sonar.
+   */
+  @Deprecated
+  public @NotNull String getLegacyFingerprint(final @NotNull String username,
+                                              final @NotNull String hostAddress) {
     final int hash0 = username.hashCode();
     final int hash1 = hostAddress.hashCode();
     final int combined = hash0 + hash1;
@@ -35,4 +95,82 @@ public class FingerprintingUtil {
       + Integer.toHexString(combined << 2)
       + Integer.toHexString(hash1 >> 4);
   }
+
+  /**
+   * Returns a 64-bit representation of the given legacy fingerprint that is used by {@link FingerprintSet}
+   */
+  @Deprecated
+  public long toLong(final @NotNull String fingerprint) {
+    // FNV-1a followed by a finalizer to spread the bits
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < fingerprint.length(); i++) {
+      hash ^= fingerprint.charAt(i);
+      hash *= 0x100000001B3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    // Don't collide with the reserved values of the fingerprint set
+    return hash == FingerprintSet.EMPTY || hash == FingerprintSet.REMOVED ? 1L : hash;
+  }
+
+  private long toLong(final byte @NotNull [] bytes, final int offset) {
+    long value = 0L;
+    for (int i = offset; i < offset + 8; i++) {
+      value = (value << 8) | (bytes[i] & 0xFFL);
+    }
+    return value;
+  }
+
+  /**
+   * SipHash-2-4 compression and finalization over 64-bit blocks.
+   * Instead of packing the message length into the last block, an extra block with the number of blocks is added.
+   */
+  private static final class SipHash {
+    private long v0, v1, v2, v3;
+    private int blocks;
+
+    private SipHash(final long key0, final long key1) {
+      v0 = key0 ^ 0x736F6D6570736575L;
+      v1 = key1 ^ 0x646F72616E646F6DL;
+      v2 = key0 ^ 0x6C7967656E657261L;
+      v3 = key1 ^ 0x7465646279746573L;
+    }
+
+    private void block(final long message) {
+      v3 ^= message;
+      round();
+      round();
+      v0 ^= message;
+      blocks++;
+    }
+
+    private long finish() {
+      // Finalize with the number of blocks, so that messages of different lengths never collide
+      block((long) blocks << 56);
+      v2 ^= 0xFF;
+      round();
+      round();
+      round();
+      round();
+      return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    private void round() {
+      v0 += v1;
+      v1 = Long.rotateLeft(v1, 13);
+      v1 ^= v0;
+      v0 = Long.rotateLeft(v0, 32);
+      v2 += v3;
+      v3 = Long.rotateLeft(v3, 16);
+      v3 ^= v2;
+      v0 += v3;
+      v3 = Long.rotateLeft(v3, 21);
+      v3 ^= v0;
+      v2 += v1;
+      v1 = Long.rotateLeft(v1, 17);
+      v1 ^= v2;
+      v2 = Long.rotateLeft(v2, 32);
+    }
+  }
 }
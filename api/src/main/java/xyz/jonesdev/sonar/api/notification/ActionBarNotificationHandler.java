@@ -56,9 +56,9 @@ public void handleNotification() {
       Placeholder.unparsed("animation", nextAnimation()),
       Placeholder.unparsed("process-cpu", Sonar.DECIMAL_FORMAT.format(getProcessCPUUsage())),
       Placeholder.unparsed("system-cpu", Sonar.DECIMAL_FORMAT.format(getSystemCPUUsage())),
-      Placeholder.unparsed("queued", DECIMAL_FORMAT.format(Sonar.get0().getAntiBot().getQueue().getPlayers().size())),
-      Placeholder.unparsed("verifying", DECIMAL_FORMAT.format(Sonar.get0().getAntiBot().getConnected().size())),
-      Placeholder.unparsed("blacklisted", DECIMAL_FORMAT.format(Sonar.get0().getAntiBot().getBlacklist().estimatedSize())),
+      Placeholder.unparsed("queued", DECIMAL_FORMAT.format(Sonar.get0().getAntiBot().getQueue().getSize())),
+      Placeholder.unparsed("verifying", DECIMAL_FORMAT.format(Sonar.get0().getAntiBot().getAddressStateTable().getVerifyingCount())),
+      Placeholder.unparsed("blacklisted", DECIMAL_FORMAT.format(Sonar.get0().getAntiBot().getAddressStateTable().getBlacklistSize())),
       Placeholder.unparsed("total-joins", DECIMAL_FORMAT.format(Sonar.get0().getStatistics().getTotalPlayersJoined())),
       Placeholder.unparsed("logins-per-second", DECIMAL_FORMAT.format(Sonar.get0().getStatistics().getLoginsPerSecond())),
       Placeholder.unparsed("connections-per-second", DECIMAL_FORMAT.format(Sonar.get0().getStatistics().getConnectionsPerSecond())),
@@ -69,6 +69,8 @@ public void handleNotification() {
       Placeholder.unparsed("outgoing-traffic", Sonar.get0().getStatistics().getPerSecondOutgoingBandwidthFormatted()),
       Placeholder.unparsed("incoming-traffic-ttl", formatMemory(Sonar.get0().getStatistics().getTotalIncomingBandwidth())),
       Placeholder.unparsed("outgoing-traffic-ttl", formatMemory(Sonar.get0().getStatistics().getTotalOutgoingBandwidth())),
+      Placeholder.unparsed("event-loop-lag", DECIMAL_FORMAT.format(Sonar.get0().getStatistics().getEventLoopLag())),
+      Placeholder.unparsed("pending-tasks", DECIMAL_FORMAT.format(Sonar.get0().getStatistics().getPendingEventLoopTasks())),
       Placeholder.unparsed("used-memory", formatMemory(getUsedMemory())),
       Placeholder.unparsed("free-memory", formatMemory(getFreeMemory())),
       Placeholder.unparsed("total-memory", formatMemory(getTotalMemory())),
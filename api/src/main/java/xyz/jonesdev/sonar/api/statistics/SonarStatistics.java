@@ -17,12 +17,28 @@
 
 package xyz.jonesdev.sonar.api.statistics;
 
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.antibot.AdmissionController;
+import xyz.jonesdev.sonar.api.antibot.FailReason;
+
 @SuppressWarnings("unused")
 public interface SonarStatistics {
   long getConnectionsPerSecond();
 
   long getLoginsPerSecond();
 
+  /**
+   * @param seconds Size of the sliding window (up to 60 seconds)
+   * @return Number of connections during the last completed seconds
+   */
+  long getConnections(final int seconds);
+
+  /**
+   * @param seconds Size of the sliding window (up to 60 seconds)
+   * @return Number of login attempts during the last completed seconds
+   */
+  long getLogins(final int seconds);
+
   long getCurrentIncomingBandwidth();
 
   long getCurrentOutgoingBandwidth();
@@ -43,6 +59,12 @@ public interface SonarStatistics {
 
   int getTotalFailedVerifications();
 
+  /**
+   * @param reason Check that the players have failed
+   * @return Number of verifications that failed because of the given check
+   */
+  long getFailedVerifications(final @NotNull FailReason reason);
+
   long getCurrentAttemptedVerifications();
 
   int getTotalAttemptedVerifications();
@@ -50,4 +72,30 @@ public interface SonarStatistics {
   long getCurrentBlacklistSize();
 
   long getTotalBlacklistSize();
+
+  /**
+   * @return 99th percentile of the scheduling delay of the event loops in milliseconds
+   */
+  double getEventLoopLag();
+
+  /**
+   * @return Highest scheduling delay of the event loops in milliseconds
+   */
+  double getMaxEventLoopLag();
+
+  /**
+   * @return Highest number of tasks waiting in a single event loop
+   */
+  long getPendingEventLoopTasks();
+
+  /**
+   * @return Number of logins that are currently admitted from the queue per second
+   */
+  double getAdmissionRate();
+
+  /**
+   * @param reason Reason of the admission controller's decisions
+   * @return Number of times the admission controller adjusted or held its rate for the given reason
+   */
+  long getAdmissionDecisions(final @NotNull AdmissionController.Reason reason);
 }
@@ -25,7 +25,18 @@
 public final class SystemTimer {
   public static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("mm:ss");
 
-  private long start = System.currentTimeMillis();
+  private long start;
+
+  public SystemTimer() {
+    this(System.currentTimeMillis());
+  }
+
+  /**
+   * @param start Start timestamp in milliseconds
+   */
+  public SystemTimer(final long start) {
+    this.start = start;
+  }
 
   public void reset() {
     start = System.currentTimeMillis();
@@ -18,6 +18,8 @@
 package xyz.jonesdev.sonar.api.tracker;
 
 import lombok.*;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.config.SonarConfiguration;
@@ -25,6 +27,9 @@
 import xyz.jonesdev.sonar.api.event.impl.AttackMitigatedEvent;
 import xyz.jonesdev.sonar.api.timer.SystemTimer;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Optional;
 
 import static xyz.jonesdev.sonar.api.profiler.SimpleProcessProfiler.*;
@@ -33,40 +38,94 @@
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class AttackTracker {
   public static final AttackTracker INSTANCE = new AttackTracker();
+  // Scheduling delay of the event loops (in milliseconds) above which the proxy is considered to be under attack
+  private static final int MAX_EVENT_LOOP_LAG = Integer.getInteger("sonar.attack.max-event-loop-lag-ms", 250);
 
   private @Nullable AttackStatistics currentAttack;
   private int attackThreshold;
 
   @Getter
   @ToString
-  @RequiredArgsConstructor
   public static final class AttackStatistics {
-    private final SystemTimer duration = new SystemTimer();
-    private final SystemTimer timer = new SystemTimer();
+    private final SystemTimer duration;
+    private final SystemTimer timer;
     private long peakJoinsPerSecond;
     private long peakConnectionsPerSecond;
     private double peakProcessCPUUsage;
     private long peakProcessMemoryUsage;
     // Calculate during-attack-statistics using their deltas
-    private int successfulVerifications, failedVerifications;
+    private long successfulVerifications;
+    private int failedVerifications;
+
+    private AttackStatistics() {
+      this(System.currentTimeMillis(), System.currentTimeMillis());
+    }
+
+    private AttackStatistics(final long start, final long lastActivity) {
+      this.duration = new SystemTimer(start);
+      this.timer = new SystemTimer(lastActivity);
+    }
+  }
+
+  /**
+   * Writes the current attack, so it can be continued after a restart
+   */
+  @ApiStatus.Internal
+  public void writeSnapshot(final @NotNull DataOutput output) throws IOException {
+    final AttackStatistics currentAttack = this.currentAttack;
+    output.writeBoolean(currentAttack != null);
+    if (currentAttack == null) return;
+    output.writeLong(currentAttack.duration.getStart());
+    output.writeLong(currentAttack.timer.getStart());
+    output.writeLong(currentAttack.peakJoinsPerSecond);
+    output.writeLong(currentAttack.peakConnectionsPerSecond);
+    output.writeDouble(currentAttack.peakProcessCPUUsage);
+    output.writeLong(currentAttack.peakProcessMemoryUsage);
+    // Counters start at 0 again after a restart, so only store how much they grew during the attack
+    output.writeLong(Sonar.get0().getStatistics().getTotalSuccessfulVerifications()
+      - currentAttack.successfulVerifications);
+    output.writeInt(Sonar.get0().getStatistics().getTotalFailedVerifications() - currentAttack.failedVerifications);
+    output.writeInt(attackThreshold);
+  }
+
+  /**
+   * Continues the attack that has been written using {@link #writeSnapshot},
+   * unless it would have already been over by now
+   */
+  @ApiStatus.Internal
+  public void readSnapshot(final @NotNull DataInput input) throws IOException {
+    if (!input.readBoolean()) return;
+    final AttackStatistics attack = new AttackStatistics(input.readLong(), input.readLong());
+    attack.peakJoinsPerSecond = input.readLong();
+    attack.peakConnectionsPerSecond = input.readLong();
+    attack.peakProcessCPUUsage = input.readDouble();
+    attack.peakProcessMemoryUsage = input.readLong();
+    attack.successfulVerifications = Sonar.get0().getStatistics().getTotalSuccessfulVerifications() - input.readLong();
+    attack.failedVerifications = Sonar.get0().getStatistics().getTotalFailedVerifications() - input.readInt();
+    final int attackThreshold = input.readInt();
+    if (currentAttack == null && attack.timer.delay() < Sonar.get0().getConfig().getAttackCooldownDelay()) {
+      currentAttack = attack;
+      this.attackThreshold = attackThreshold;
+    }
   }
 
   public void checkIfUnderAttack() {
     final long joinsPerSecond = Sonar.get0().getStatistics().getLoginsPerSecond();
-    final int verifyingPlayers = Sonar.get0().getAntiBot().getConnected().size();
-    final int queuedPlayers = Sonar.get0().getAntiBot().getQueue().getPlayers().size();
+    final int verifyingPlayers = Sonar.get0().getAntiBot().getAddressStateTable().getVerifyingCount();
+    final int queuedPlayers = Sonar.get0().getAntiBot().getQueue().getSize();
     final int minPlayers = Sonar.get0().getConfig().getMinPlayersForAttack();
 
     if (joinsPerSecond > minPlayers // Check the number of bots/joins per second.
       || verifyingPlayers > minPlayers // Check the number of verifying players.
-      || queuedPlayers > minPlayers) { // Check the number of queued players.
+      || queuedPlayers > minPlayers // Check the number of queued players.
+      || Sonar.get0().getStatistics().getEventLoopLag() > MAX_EVENT_LOOP_LAG) { // Check if the event loops keep up.
       // Increment attack threshold
       ++attackThreshold;
 
       // An attack has been detected
       if (currentAttack == null) {
         currentAttack = new AttackStatistics();
-        currentAttack.successfulVerifications = Sonar.get0().getVerifiedPlayerController().getCache().size();
+        currentAttack.successfulVerifications = Sonar.get0().getStatistics().getTotalSuccessfulVerifications();
         currentAttack.failedVerifications = Sonar.get0().getStatistics().getTotalFailedVerifications();
         Sonar.get0().getEventManager().publish(new AttackDetectedEvent());
         Sonar.get0().getChatNotificationHandler().handleNotification();
@@ -116,9 +175,9 @@ public void checkIfUnderAttack() {
               final String formattedDuration = String.format("%d minutes, %.0f seconds", minutes, seconds);
               final String startTimestamp = String.valueOf(currentAttack.duration.getStart() / 1000L);
               final String endTimestamp = String.valueOf(System.currentTimeMillis() / 1000L);
-              final long blacklisted = Sonar.get0().getAntiBot().getBlacklist().estimatedSize();
+              final long blacklisted = Sonar.get0().getAntiBot().getAddressStateTable().getBlacklistSize();
               // Calculate during-attack-statistics using their deltas
-              final long totalVerified = Sonar.get0().getVerifiedPlayerController().getCache().size();
+              final long totalVerified = Sonar.get0().getStatistics().getTotalSuccessfulVerifications();
               final long verified = Math.max(totalVerified - currentAttack.successfulVerifications, 0);
               final long totalFailed = Sonar.get0().getStatistics().getTotalFailedVerifications();
               final long failed = Math.max(totalFailed - currentAttack.failedVerifications, 0);
@@ -140,7 +140,7 @@ public void channelRead(final @NotNull ChannelHandlerContext ctx, final Object m
           if (inboundHandler != null && channelRemovalListener != null) {
             channelRemovalListener.accept(ctx.pipeline(), SONAR_INBOUND_HANDLER, inboundHandler);
           }
-        }, loginStart.getUsername(), socketAddress);
+        }, loginStart.getUsername(), socketAddress, byteBuf);
         byteBuf.release();
         return;
       }
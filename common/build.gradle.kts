@@ -1,5 +1,15 @@
+plugins {
+  alias(libs.plugins.jmh) apply true
+}
+
 dependencies {
   compileOnly(project(":api"))
   implementation(project(":captcha"))
   compileOnly(rootProject.libs.adventure.nbt)
+
+  // The benchmarks run outside of a server, so they need the dependencies the server would provide
+  jmh(project(":api"))
+  jmh(rootProject.libs.netty)
+  jmh(rootProject.libs.adventure.nbt)
+  jmh(rootProject.libs.adventure.minimessage)
 }
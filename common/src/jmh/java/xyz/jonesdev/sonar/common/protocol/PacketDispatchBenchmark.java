@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.protocol;
+
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import xyz.jonesdev.sonar.common.protocol.packets.play.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares dispatching packets on their {@link SonarPacketType} with walking an instanceof chain
+ * for a mixed stream of the packets a verifying player sends.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketDispatchBenchmark {
+  private static final int STREAM_LENGTH = 1024;
+  // Movement packets make up most of the packets a verifying player sends
+  private static final SonarPacketType[] MIX = {
+    SonarPacketType.SET_PLAYER_POSITION, SonarPacketType.SET_PLAYER_POSITION, SonarPacketType.SET_PLAYER_POSITION,
+    SonarPacketType.SET_PLAYER_POSITION_ROTATION, SonarPacketType.SET_PLAYER_POSITION_ROTATION,
+    SonarPacketType.SET_PLAYER_POSITION_ROTATION, SonarPacketType.SET_PLAYER_ROTATION,
+    SonarPacketType.CLIENT_TICK_END, SonarPacketType.CLIENT_TICK_END, SonarPacketType.KEEP_ALIVE,
+    SonarPacketType.TRANSACTION, SonarPacketType.CONFIRM_TELEPORTATION, SonarPacketType.PLAYER_INPUT,
+    SonarPacketType.VEHICLE_MOVE, SonarPacketType.PADDLE_BOAT, SonarPacketType.SYSTEM_CHAT,
+    SonarPacketType.PLUGIN_MESSAGE, SonarPacketType.CLIENT_INFORMATION, SonarPacketType.SET_HELD_ITEM,
+    SonarPacketType.ANIMATION
+  };
+
+  private final SonarPacketType[] types = new SonarPacketType[STREAM_LENGTH];
+  private final SonarPacket[] packets = new SonarPacket[STREAM_LENGTH];
+
+  @Setup
+  public void setup() throws ReflectiveOperationException {
+    // Like the decoder, only use a single instance per packet type
+    final Map<SonarPacketType, SonarPacket> instances = new EnumMap<>(SonarPacketType.class);
+    for (final SonarPacketType type : MIX) {
+      if (!instances.containsKey(type)) {
+        instances.put(type, type.getPacketClass().getDeclaredConstructor().newInstance());
+      }
+    }
+    final Random random = new Random(0L);
+    for (int i = 0; i < STREAM_LENGTH; i++) {
+      types[i] = MIX[random.nextInt(MIX.length)];
+      packets[i] = instances.get(types[i]);
+    }
+  }
+
+  @Benchmark
+  public void typeSwitch(final @NotNull Blackhole blackhole) {
+    for (int i = 0; i < STREAM_LENGTH; i++) {
+      blackhole.consume(dispatchByType(types[i], packets[i]));
+    }
+  }
+
+  @Benchmark
+  public void instanceofChain(final @NotNull Blackhole blackhole) {
+    for (int i = 0; i < STREAM_LENGTH; i++) {
+      blackhole.consume(dispatchByInstanceof(packets[i]));
+    }
+  }
+
+  private static int dispatchByType(final @NotNull SonarPacketType type, final @NotNull SonarPacket packet) {
+    switch (type) {
+      case KEEP_ALIVE:
+        return handle((KeepAlivePacket) packet, 1);
+      case CLIENT_INFORMATION:
+        return handle((ClientInformationPacket) packet, 2);
+      case PLUGIN_MESSAGE:
+        return handle((PluginMessagePacket) packet, 3);
+      case SET_PLAYER_POSITION_ROTATION:
+        return handle((SetPlayerPositionRotationPacket) packet, 4);
+      case SET_PLAYER_POSITION:
+        return handle((SetPlayerPositionPacket) packet, 5);
+      case CONFIRM_TELEPORTATION:
+        return handle((ConfirmTeleportationPacket) packet, 6);
+      case CLIENT_TICK_END:
+        return handle((ClientTickEndPacket) packet, 7);
+      case TRANSACTION:
+        return handle((TransactionPacket) packet, 8);
+      case SET_HELD_ITEM:
+        return handle((SetHeldItemPacket) packet, 9);
+      case ANIMATION:
+        return handle((AnimationPacket) packet, 10);
+      case PADDLE_BOAT:
+        return handle((PaddleBoatPacket) packet, 11);
+      case VEHICLE_MOVE:
+        return handle((VehicleMovePacket) packet, 12);
+      case SET_PLAYER_ROTATION:
+        return handle((SetPlayerRotationPacket) packet, 13);
+      case PLAYER_INPUT:
+        return handle((PlayerInputPacket) packet, 14);
+      case SYSTEM_CHAT:
+        return handle((SystemChatPacket) packet, 15);
+      default:
+        return 0;
+    }
+  }
+
+  // Same order as the instanceof chains of the verification stages used to have
+  private static int dispatchByInstanceof(final @NotNull SonarPacket packet) {
+    if (packet instanceof KeepAlivePacket) {
+      return handle((KeepAlivePacket) packet, 1);
+    } else if (packet instanceof ClientInformationPacket) {
+      return handle((ClientInformationPacket) packet, 2);
+    } else if (packet instanceof PluginMessagePacket) {
+      return handle((PluginMessagePacket) packet, 3);
+    } else if (packet instanceof SetPlayerPositionRotationPacket) {
+      return handle((SetPlayerPositionRotationPacket) packet, 4);
+    } else if (packet instanceof SetPlayerPositionPacket) {
+      return handle((SetPlayerPositionPacket) packet, 5);
+    } else if (packet instanceof ConfirmTeleportationPacket) {
+      return handle((ConfirmTeleportationPacket) packet, 6);
+    } else if (packet instanceof ClientTickEndPacket) {
+      return handle((ClientTickEndPacket) packet, 7);
+    } else if (packet instanceof TransactionPacket) {
+      return handle((TransactionPacket) packet, 8);
+    } else if (packet instanceof SetHeldItemPacket) {
+      return handle((SetHeldItemPacket) packet, 9);
+    } else if (packet instanceof AnimationPacket) {
+      return handle((AnimationPacket) packet, 10);
+    } else if (packet instanceof PaddleBoatPacket) {
+      return handle((PaddleBoatPacket) packet, 11);
+    } else if (packet instanceof VehicleMovePacket) {
+      return handle((VehicleMovePacket) packet, 12);
+    } else if (packet instanceof SetPlayerRotationPacket) {
+      return handle((SetPlayerRotationPacket) packet, 13);
+    } else if (packet instanceof PlayerInputPacket) {
+      return handle((PlayerInputPacket) packet, 14);
+    } else if (packet instanceof SystemChatPacket) {
+      return handle((SystemChatPacket) packet, 15);
+    }
+    return 0;
+  }
+
+  // Keeps the cast packet alive, so the JIT cannot drop the type checks
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  private static int handle(final @NotNull SonarPacket packet, final int handler) {
+    return handler ^ System.identityHashCode(packet);
+  }
+}
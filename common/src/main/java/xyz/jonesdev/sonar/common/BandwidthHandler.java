@@ -18,6 +18,7 @@
 package xyz.jonesdev.sonar.common;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -37,7 +38,7 @@ public void channelRead(final ChannelHandlerContext ctx, final @NotNull Object m
     if (msg instanceof ByteBuf) {
       // Increment the incoming traffic by the number of readable bytes
       final int readableBytes = ((ByteBuf) msg).readableBytes();
-      GlobalSonarStatistics.perSecondIncomingTraffic += readableBytes;
+      GlobalSonarStatistics.INCOMING_TRAFFIC.add(readableBytes);
     }
     ctx.fireChannelRead(msg);
   }
@@ -47,7 +48,11 @@ public void write(final ChannelHandlerContext ctx, final Object msg, final Chann
     if (msg instanceof ByteBuf) {
       // Increment the outgoing traffic by the number of readable bytes
       final int readableBytes = ((ByteBuf) msg).readableBytes();
-      GlobalSonarStatistics.perSecondOutgoingTraffic += readableBytes;
+      GlobalSonarStatistics.OUTGOING_TRAFFIC.add(readableBytes);
+    } else if (msg instanceof ByteBufHolder) {
+      // Pre-framed packet bundles are wrapped and only unwrapped by the length encoder
+      final int readableBytes = ((ByteBufHolder) msg).content().readableBytes();
+      GlobalSonarStatistics.OUTGOING_TRAFFIC.add(readableBytes);
     }
     ctx.write(msg, promise);
   }
@@ -55,27 +55,14 @@ public void channelInactive(final @NotNull ChannelHandlerContext ctx) throws Exc
     // The player can disconnect without sending the login packet first
     // Account for this by checking if the inetAddress has been set yet
     if (inetAddress != null) {
-      // Remove the IP address from the queue
-      Sonar.get0().getAntiBot().getQueue().getPlayers().compute(inetAddress, (ignored, action) -> {
-        // The player is not queued, so we need to remove them from other maps as well
-        if (action == null) {
-          // Remove the IP address from the connected players, if needed
-          Sonar.get0().getAntiBot().getConnected().compute(inetAddress, (__, v) -> {
-            /*
-             * Remove this account from the online players or decrement the number of accounts
-             * with the same IP, but only if the player is logging into the backend server.
-             * We don't need to decrement the count if the player was just verified since
-             * we've never actually incremented it in the first place ¯\_(ツ)_/¯
-             */
-            if (v == null) {
-              Sonar.get0().getAntiBot().getOnline().compute(inetAddress,
-                (ignored1, count) -> count == null || count <= 1 ? null : count - 1);
-            }
-            return null;
-          });
-        }
-        return null;
-      });
+      /*
+       * Remove the IP address from the queue, or, if the player is not queued,
+       * remove the IP address from the verifying players or decrement the number of accounts
+       * with the same IP, but only if the player is logging into the backend server.
+       * We don't need to decrement the count if the player was just verified since
+       * we've never actually incremented it in the first place ¯\_(ツ)_/¯
+       */
+      Sonar.get0().getAntiBot().getAddressStateTable().handleDisconnect(inetAddress);
     }
   }
 
@@ -18,11 +18,14 @@
 package xyz.jonesdev.sonar.common;
 
 import io.netty.channel.*;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.antibot.LoginQueue;
 import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.api.fingerprint.FingerprintingUtil;
 import xyz.jonesdev.sonar.common.netty.SonarTimeoutHandler;
@@ -38,6 +41,7 @@
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static xyz.jonesdev.sonar.api.antibot.ChannelPipelines.*;
@@ -75,6 +79,20 @@ protected final void handleLogin(final @NotNull ChannelHandlerContext ctx,
                                    final @NotNull Runnable initialLoginAction,
                                    final @NotNull String username,
                                    final @NotNull InetSocketAddress socketAddress) throws Exception {
+    handleLogin(ctx, initialLoginAction, username, socketAddress, null);
+  }
+
+  /**
+   * Validates and handles incoming login packets
+   *
+   * @param retainedMessage Message that is used by the initial login action and has to stay
+   *                        alive while the login is waiting for the database
+   */
+  protected final void handleLogin(final @NotNull ChannelHandlerContext ctx,
+                                   final @NotNull Runnable initialLoginAction,
+                                   final @NotNull String username,
+                                   final @NotNull InetSocketAddress socketAddress,
+                                   final @Nullable ReferenceCounted retainedMessage) throws Exception {
     // Count every single attempted login
     GlobalSonarStatistics.countLogin();
     // Ensure that the player sent a handshake packet
@@ -98,7 +116,7 @@ protected final void handleLogin(final @NotNull ChannelHandlerContext ctx,
     ctx.pipeline().get(InboundHandler.class).setInetAddress(inetAddress);
 
     // Check if Sonar is already verifying a player with the same IP address
-    if (Sonar.get0().getAntiBot().getConnected().containsKey(inetAddress)) {
+    if (Sonar.get0().getAntiBot().getAddressStateTable().isVerifying(inetAddress)) {
       customDisconnect(ctx.channel(), alreadyVerifying, protocolVersion);
       return;
     }
@@ -109,15 +127,10 @@ protected final void handleLogin(final @NotNull ChannelHandlerContext ctx,
       return;
     }
 
-    final String hostAddress = inetAddress.getHostAddress();
-    // Check if the player failed the verification too many times
-    final int limit = Sonar.get0().getConfig().getVerification().getBlacklistThreshold();
-    if (limit > 0) {
-      final int score = Sonar.get0().getAntiBot().getBlacklist().asMap().getOrDefault(hostAddress, 0);
-      if (score >= limit) {
-        customDisconnect(ctx.channel(), blacklisted, protocolVersion);
-        return;
-      }
+    // Check if the player failed the verification too many times or is inside a blacklisted range
+    if (Sonar.get0().getAntiBot().isBlacklisted(inetAddress)) {
+      customDisconnect(ctx.channel(), blacklisted, protocolVersion);
+      return;
     }
 
     // Don't continue the verification process if the verification is disabled
@@ -141,8 +154,45 @@ protected final void handleLogin(final @NotNull ChannelHandlerContext ctx,
     }
 
     // Make sure we actually have to verify the player
-    final String fingerprint = FingerprintingUtil.getFingerprint(username, hostAddress);
-    if (Sonar.get0().getVerifiedPlayerController().getCache().contains(fingerprint)) {
+    final long fingerprint = FingerprintingUtil.getFingerprint(username, inetAddress);
+    final CompletableFuture<Boolean> verified = Sonar.get0().getVerifiedPlayerController()
+      .isVerified(fingerprint, username, inetAddress);
+    if (verified.isDone()) {
+      handleVerifiedLookup(ctx, initialLoginAction, inetAddress, username, fingerprint, geyser,
+        !verified.isCompletedExceptionally() && verified.join());
+      return;
+    }
+
+    // Park the login until the database lookup has completed
+    ctx.channel().config().setAutoRead(false);
+    if (retainedMessage != null) {
+      retainedMessage.retain();
+    }
+    verified.whenComplete((result, throwable) -> ctx.channel().eventLoop().execute(() -> {
+      try {
+        if (!ctx.channel().isActive()) return;
+        ctx.channel().config().setAutoRead(true);
+        // Failed lookups are treated like unverified players
+        handleVerifiedLookup(ctx, initialLoginAction, inetAddress, username, fingerprint, geyser,
+          throwable == null && result);
+      } catch (Exception exception) {
+        ctx.fireExceptionCaught(exception);
+      } finally {
+        if (retainedMessage != null) {
+          ReferenceCountUtil.safeRelease(retainedMessage);
+        }
+      }
+    }));
+  }
+
+  private void handleVerifiedLookup(final @NotNull ChannelHandlerContext ctx,
+                                    final @NotNull Runnable initialLoginAction,
+                                    final @NotNull InetAddress inetAddress,
+                                    final @NotNull String username,
+                                    final long fingerprint,
+                                    final boolean geyser,
+                                    final boolean verified) throws Exception {
+    if (verified) {
       initialLogin(ctx.channel(), inetAddress, initialLoginAction);
       return;
     }
@@ -157,17 +207,20 @@ protected final void handleLogin(final @NotNull ChannelHandlerContext ctx,
     rewriteProtocol(ctx, channelRemovalListener);
 
     // Queue the connection for further processing
-    Sonar.get0().getAntiBot().getQueue().getPlayers().compute(inetAddress, (__, runnable) -> {
-      // Check if the player is already queued since we don't want bots to flood the queue
-      if (runnable != null) {
-        customDisconnect(ctx.channel(), alreadyQueued, protocolVersion);
-        // Remove other instances of this IP address from the queue
-        return null;
+    // Create an instance for the user and let the verification handler take over the channel
+    final LoginQueue.Result result = Sonar.get0().getAntiBot().getQueue().enqueue(inetAddress,
+      ctx.channel().eventLoop(), () -> new UserWrapper(ctx, inetAddress, protocolVersion, username, fingerprint, geyser));
+    if (result == LoginQueue.Result.ALREADY_QUEUED) {
+      // The player was already queued, which also removed other instances of this IP address from the queue,
+      // since we don't want bots to flood the queue
+      customDisconnect(ctx.channel(), alreadyQueued, protocolVersion);
+    } else if (result == LoginQueue.Result.FULL) {
+      if (LoginQueue.OVERFLOW_POLICY == LoginQueue.OverflowPolicy.CLOSE) {
+        ctx.channel().close();
+      } else {
+        customDisconnect(ctx.channel(), reconnectedTooFast, protocolVersion);
       }
-
-      // Create an instance for the user and let the verification handler take over the channel
-      return () -> new UserWrapper(ctx, inetAddress, protocolVersion, username, fingerprint, geyser);
-    });
+    }
   }
 
   /**
@@ -178,8 +231,7 @@ protected final void initialLogin(final @NotNull Channel channel,
                                     final @NotNull Runnable loginPacket) throws Exception {
     final int maxOnlinePerIp = Sonar.get0().getConfig().getMaxOnlinePerIp();
     if (maxOnlinePerIp > 0) {
-      final int newCount = Sonar.get0().getAntiBot().getOnline().compute(inetAddress,
-        (__, count) -> count == null ? 1 : count + 1);
+      final int newCount = Sonar.get0().getAntiBot().getAddressStateTable().incrementOnline(inetAddress);
       if (newCount > maxOnlinePerIp) {
         customDisconnect(channel, tooManyOnlinePerIP, protocolVersion);
         return;
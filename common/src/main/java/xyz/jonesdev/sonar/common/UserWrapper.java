@@ -40,7 +40,7 @@
 import xyz.jonesdev.sonar.common.protocol.packets.play.DisconnectPacket;
 import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
-import xyz.jonesdev.sonar.common.verification.LoginHandler;
+import xyz.jonesdev.sonar.common.verification.VerificationSession;
 
 import java.net.InetAddress;
 
@@ -53,7 +53,7 @@ public final class UserWrapper implements SonarUser {
   private final Channel channel;
   private final InetAddress inetAddress;
   private final ProtocolVersion protocolVersion;
-  private final String fingerprint;
+  private final long fingerprint;
   private final String username;
   private final boolean geyser;
   private final SystemTimer loginTimer;
@@ -64,7 +64,7 @@ public UserWrapper(final @NotNull ChannelHandlerContext ctx,
                      final @NotNull InetAddress inetAddress,
                      final @NotNull ProtocolVersion protocolVersion,
                      final @NotNull String username,
-                     final @NotNull String fingerprint,
+                     final long fingerprint,
                      final boolean geyser) {
     this.channel = ctx.channel();
     this.inetAddress = inetAddress;
@@ -74,7 +74,7 @@ public UserWrapper(final @NotNull ChannelHandlerContext ctx,
     this.geyser = geyser;
     this.loginTimer = new SystemTimer();
 
-    GlobalSonarStatistics.totalAttemptedVerifications++;
+    GlobalSonarStatistics.TOTAL_ATTEMPTED_VERIFICATIONS.increment();
 
     if (Sonar.get0().getConfig().getVerification().isLogConnections()
       && (Sonar.get0().getAttackTracker().getCurrentAttack() == null
@@ -89,50 +89,63 @@ public UserWrapper(final @NotNull ChannelHandlerContext ctx,
     // Call the VerifyJoinEvent for external API usage
     Sonar.get0().getEventManager().publish(new UserVerifyJoinEvent(this));
 
-    // Run this in the channel's event loop to avoid issues
-    channel.eventLoop().execute(() -> {
-      // Make sure the channel is still active
-      if (!channel.isActive()) {
-        return;
-      }
-
-      // How? Is there some kind of de-sync or race condition?
-      if (channel.pipeline().context(SONAR_FRAME_ENCODER) != null) {
-        channel.close(); // Nope ¯\_(ツ)_/¯
-        return;
-      }
-
-      // Mark the player as connected by caching them in a map of verifying players
-      Sonar.get0().getAntiBot().getConnected().compute(inetAddress, (__, v) -> true);
-
-      // Replace normal encoder to allow custom packets
-      final SonarPacketEncoder newEncoder = new SonarPacketEncoder(protocolVersion);
-      channel.pipeline().addFirst(SONAR_FRAME_ENCODER, MinecraftVarIntLengthEncoder.INSTANCE);
-      channel.pipeline().addLast(SONAR_PACKET_ENCODER, newEncoder);
-
-      // Replace normal decoder to allow custom packets
-      final SonarPacketDecoder newDecoder = new SonarPacketDecoder(protocolVersion);
-      channel.pipeline().addFirst(SONAR_FRAME_DECODER, new MinecraftVarInt21FrameDecoder());
-      channel.pipeline().addLast(SONAR_PACKET_DECODER, newDecoder);
-
-      // We're sending the LoginSuccess packet now
-      newDecoder.updateRegistry(SonarPacketRegistry.LOGIN);
-      newEncoder.updateRegistry(SonarPacketRegistry.LOGIN);
-      // Send LoginSuccess packet to make the client think they are joining the server
-      write(SonarPacketPreparer.loginSuccess);
-
-      // pre-1.20.2 clients do not have the configuration stage
-      if (protocolVersion.lessThan(ProtocolVersion.MINECRAFT_1_20_2)) {
-        newDecoder.updateRegistry(SonarPacketRegistry.GAME);
-        newEncoder.updateRegistry(SonarPacketRegistry.GAME);
-      }
-
-      // Listen for all incoming packets by setting the packet listener
-      newDecoder.setListener(new LoginHandler(this));
-
-      // Make sure to catch all exceptions during the verification
-      channel.pipeline().addLast(SONAR_TAIL_EXCEPTIONS, TailExceptionsHandler.INSTANCE);
-    });
+    // The queue already hands the player over to the channel's event loop
+    if (channel.eventLoop().inEventLoop()) {
+      takeOver();
+    } else {
+      channel.eventLoop().execute(this::takeOver);
+    }
+  }
+
+  /**
+   * Replaces the pipelines of the channel and starts the verification
+   */
+  private void takeOver() {
+    // Make sure the channel is still active
+    if (!channel.isActive()) {
+      return;
+    }
+
+    // How? Is there some kind of de-sync or race condition?
+    if (channel.pipeline().context(SONAR_FRAME_ENCODER) != null) {
+      channel.close(); // Nope ¯\_(ツ)_/¯
+      return;
+    }
+
+    // Mark the player as connected by caching them in a map of verifying players
+    Sonar.get0().getAntiBot().getAddressStateTable().markVerifying(inetAddress);
+
+    // Replace normal encoder to allow custom packets
+    final SonarPacketEncoder newEncoder = new SonarPacketEncoder(protocolVersion);
+    channel.pipeline().addFirst(SONAR_FRAME_ENCODER, MinecraftVarIntLengthEncoder.INSTANCE);
+    channel.pipeline().addLast(SONAR_PACKET_ENCODER, newEncoder);
+
+    // Replace normal decoder to allow custom packets
+    final SonarPacketDecoder newDecoder = new SonarPacketDecoder(protocolVersion, SonarPacketDecoder.FUSED);
+    // The fused decoder splits the frames by itself
+    if (!SonarPacketDecoder.FUSED) {
+      channel.pipeline().addFirst(SONAR_FRAME_DECODER,
+        new MinecraftVarInt21FrameDecoder(newDecoder::getMaxFrameLength));
+    }
+    channel.pipeline().addLast(SONAR_PACKET_DECODER, newDecoder);
+
+    // We're sending the LoginSuccess packet now
+    newDecoder.updateRegistry(SonarPacketRegistry.LOGIN);
+    newEncoder.updateRegistry(SonarPacketRegistry.LOGIN);
+    // Send LoginSuccess packet to make the client think they are joining the server
+    write(SonarPacketPreparer.loginSuccess);
+
+    // pre-1.20.2 clients do not have the configuration stage
+    if (protocolVersion.lessThan(ProtocolVersion.MINECRAFT_1_20_2)) {
+      newDecoder.updateRegistry(SonarPacketRegistry.GAME);
+      newEncoder.updateRegistry(SonarPacketRegistry.GAME);
+    }
+
+    // Listen for all incoming packets by setting the packet listener
+    newDecoder.setListener(new VerificationSession(this, newDecoder, newEncoder));
+
+    // Make sure to catch all exceptions during the verification
+    channel.pipeline().addLast(SONAR_TAIL_EXCEPTIONS, TailExceptionsHandler.INSTANCE);
   }
 
   @Override
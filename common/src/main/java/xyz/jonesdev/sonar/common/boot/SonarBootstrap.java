@@ -18,8 +18,6 @@
 package xyz.jonesdev.sonar.common.boot;
 
 import com.alessiodp.libby.LibraryManager;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.Ticker;
 import com.j256.ormlite.logger.Level;
 import com.j256.ormlite.logger.Logger;
 import lombok.Getter;
@@ -37,9 +35,11 @@
 import xyz.jonesdev.sonar.api.statistics.SonarStatistics;
 import xyz.jonesdev.sonar.api.timer.SystemTimer;
 import xyz.jonesdev.sonar.common.protocol.SonarPacketPreparer;
-import xyz.jonesdev.sonar.common.ratelimit.CaffeineCacheRatelimiter;
+import xyz.jonesdev.sonar.common.ratelimit.AddressStateRatelimiter;
 import xyz.jonesdev.sonar.common.ratelimit.NoopCacheRatelimiter;
+import xyz.jonesdev.sonar.common.ratelimit.TokenBucketRatelimiter;
 import xyz.jonesdev.sonar.common.service.ScheduledServiceManager;
+import xyz.jonesdev.sonar.common.service.StateSnapshot;
 import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
 import xyz.jonesdev.sonar.common.subcommand.*;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
@@ -50,6 +50,9 @@
 @Getter
 @RequiredArgsConstructor
 public abstract class SonarBootstrap<T> implements Sonar {
+  // Whether reconnects are limited per subnet as well, instead of only enforcing a delay per IP address
+  private static final boolean SUBNET_RATELIMIT = Boolean.parseBoolean(
+    System.getProperty("sonar.ratelimit.subnets", "true"));
   private T plugin;
   @Setter
   private ActionBarNotificationHandler actionBarNotificationHandler;
@@ -140,35 +143,28 @@ public final void reload() {
     SonarPacketPreparer.prepare();
 
     // Update ratelimiter cache
-    getAntiBot().setRatelimiter(getConfig().getVerification().getReconnectDelay() > 0L
-      ? new CaffeineCacheRatelimiter(Duration.ofMillis(getConfig().getVerification().getReconnectDelay()))
-      : NoopCacheRatelimiter.INSTANCE);
-
-    // Update blacklist cache
-    final long blacklistTime = getConfig().getVerification().getBlacklistTime();
-    final boolean blacklistExists = getAntiBot().getBlacklist() != null;
-    // Make sure the blacklist is only set when we need it to prevent data loss
-    if (!blacklistExists // Make sure we create a new cache if it doesn't exist yet
-      || getAntiBot().getBlacklistTime() != blacklistTime) {
-      // Create a new cache with the configured blacklist time
-      getAntiBot().setBlacklist(Caffeine.newBuilder()
-        .expireAfterWrite(Duration.ofMillis(getConfig().getVerification().getBlacklistTime()))
-        .ticker(Ticker.systemTicker())
-        .build());
-      // Store the new blacklist time, so we don't have to reset the blacklist every reload
-      getAntiBot().setBlacklistTime(blacklistTime);
-      // Warn the user about changing the expiry of the blacklist values
-      if (blacklistExists) {
-        getLogger().warn("The blacklist has been reset as the duration of entries has changed.");
-      }
+    final Duration reconnectDelay = Duration.ofMillis(getConfig().getVerification().getReconnectDelay());
+    if (reconnectDelay.isZero()) {
+      getAntiBot().setRatelimiter(NoopCacheRatelimiter.INSTANCE);
+    } else if (SUBNET_RATELIMIT) {
+      getAntiBot().setRatelimiter(new TokenBucketRatelimiter(reconnectDelay));
+    } else {
+      getAntiBot().setRatelimiter(new AddressStateRatelimiter(getAntiBot().getAddressStateTable(), reconnectDelay));
     }
 
+    // Update blacklist time; every entry stores its own deadline,
+    // so the blacklist doesn't have to be reset when the duration changes
+    getAntiBot().setBlacklistTime(getConfig().getVerification().getBlacklistTime());
+
     // Reinitialize database controller
     if (verifiedPlayerController != null) {
       // Close the old connection first
       verifiedPlayerController.close();
     }
     verifiedPlayerController = new VerifiedPlayerController(libraryManager);
+
+    // Restore the blacklist and the attack state of the last run (only once)
+    StateSnapshot.restore();
   }
 
   public final void shutdown() {
@@ -176,6 +172,8 @@ public final void shutdown() {
     getLogger().info("Starting shutdown process...");
     // Interrupt threads
     ScheduledServiceManager.stop();
+    // Save the blacklist and the attack state for the next start
+    StateSnapshot.save();
     // Close database connection if present
     if (verifiedPlayerController != null) {
       verifiedPlayerController.close();
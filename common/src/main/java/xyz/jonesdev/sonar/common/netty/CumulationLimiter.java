@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.netty;
+
+import io.netty.channel.Channel;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of bytes all verifying channels may hold in their cumulation buffers combined.
+ * <br>
+ * Channels that announce a large frame and then trickle its bytes would otherwise pin memory
+ * until they time out; if the cap is exceeded, the channels that have been accumulating for the longest
+ * are closed first.
+ */
+@UtilityClass
+public class CumulationLimiter {
+  private final long MAX_CUMULATION_BYTES = Long.getLong("sonar.verification.max-cumulation-bytes", 64L << 20);
+  private final AtomicLong TOTAL_BYTES = new AtomicLong();
+  private final AtomicLong SEQUENCE = new AtomicLong();
+  // Channels that are currently accumulating, ordered by when they started
+  private final ConcurrentSkipListMap<Long, Tracker> ACCUMULATING = new ConcurrentSkipListMap<>();
+
+  private void evict() {
+    while (TOTAL_BYTES.get() > MAX_CUMULATION_BYTES) {
+      final Map.Entry<Long, Tracker> oldest = ACCUMULATING.pollFirstEntry();
+      if (oldest == null) {
+        break;
+      }
+      // Give the bytes back right away, so other channels don't evict even more channels
+      // while this one is still being closed on its event loop
+      final int bytes = oldest.getValue().bytes.getAndSet(EVICTED);
+      if (bytes > 0) {
+        TOTAL_BYTES.addAndGet(-bytes);
+      }
+      oldest.getValue().channel.close();
+    }
+  }
+
+  /**
+   * Keeps track of the cumulation of a single channel; must only be updated from the channel's event loop
+   */
+  public static final class Tracker {
+    private static final int EVICTED = -1;
+
+    private final AtomicInteger bytes = new AtomicInteger();
+    private long sequence;
+    private Channel channel;
+
+    public void update(final @NotNull Channel channel, final int newBytes) {
+      int oldBytes;
+      do {
+        oldBytes = bytes.get();
+        // The bytes of an evicted channel have already been given back
+        if (oldBytes == EVICTED || oldBytes == newBytes) {
+          return;
+        }
+      } while (!bytes.compareAndSet(oldBytes, newBytes));
+
+      if (oldBytes == 0) {
+        this.channel = channel;
+        sequence = SEQUENCE.incrementAndGet();
+        ACCUMULATING.put(sequence, this);
+      } else if (newBytes == 0) {
+        ACCUMULATING.remove(sequence, this);
+      }
+
+      if (TOTAL_BYTES.addAndGet(newBytes - oldBytes) > MAX_CUMULATION_BYTES) {
+        evict();
+      }
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.haproxy.HAProxyMessage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
+import xyz.jonesdev.sonar.common.protocol.SonarPacketBundle;
+import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
+import xyz.jonesdev.sonar.common.util.EaglerUtil;
+import xyz.jonesdev.sonar.common.util.ProtocolUtil;
+import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static xyz.jonesdev.sonar.common.protocol.SonarPacketPreparer.*;
+import static xyz.jonesdev.sonar.common.protocol.packets.handshake.HandshakePacket.*;
+
+/**
+ * Reads the raw handshake and login start packets right after the platform's frame decoder.
+ * Connections that Sonar would disconnect anyway are rejected before the platform allocates
+ * any packet objects; all other packets are passed through unchanged.
+ */
+public final class HandshakePreFilter extends ChannelInboundHandlerAdapter {
+  // Do not disable unless instructed by support.
+  public static final boolean ENABLED = !Boolean.getBoolean("sonar.disable-handshake-filter");
+  // Name of the frame decoder on Velocity and BungeeCord
+  public static final String PROXY_FRAME_DECODER = "frame-decoder";
+  private static final int MAXIMUM_USERNAME_BYTES = 16 * 3;
+
+  private @Nullable InetAddress inetAddress;
+  private ProtocolVersion protocolVersion;
+  private boolean rejected;
+
+  public HandshakePreFilter(final @Nullable SocketAddress remoteAddress) {
+    // The address might be a local address (e.g., Geyser), in which case we skip all address checks
+    if (remoteAddress instanceof InetSocketAddress) {
+      this.inetAddress = ((InetSocketAddress) remoteAddress).getAddress();
+    }
+  }
+
+  @Override
+  public void channelRead(final @NotNull ChannelHandlerContext ctx, final Object msg) throws Exception {
+    if (msg instanceof HAProxyMessage) {
+      // Use the address forwarded by the proxy protocol instead of the address of the proxy
+      final String sourceAddress = ((HAProxyMessage) msg).sourceAddress();
+      try {
+        inetAddress = sourceAddress == null ? null : InetAddress.getByName(sourceAddress);
+      } catch (UnknownHostException exception) {
+        inetAddress = null;
+      }
+      ctx.fireChannelRead(msg);
+      return;
+    }
+
+    if (!(msg instanceof ByteBuf)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+
+    final ByteBuf byteBuf = (ByteBuf) msg;
+    // Discard everything the client sends after we've decided to disconnect them
+    if (rejected) {
+      byteBuf.release();
+      return;
+    }
+
+    // EaglerX connections use their own handshake, so we leave them alone
+    if (EaglerUtil.isEaglerConnection(ctx.channel())) {
+      ctx.pipeline().remove(this);
+      ctx.fireChannelRead(byteBuf);
+      return;
+    }
+
+    final int originalReaderIndex = byteBuf.readerIndex();
+    final boolean accepted;
+    try {
+      accepted = protocolVersion == null ? handleHandshake(ctx, byteBuf) : handleLoginStart(ctx, byteBuf);
+    } catch (Throwable throwable) {
+      // The packet is malformed; there is no reason to let the platform decode it
+      rejected = true;
+      byteBuf.release();
+      ctx.close();
+      if (TailExceptionsHandler.LOG_EXCEPTIONS) {
+        throwable.printStackTrace(System.err);
+      }
+      return;
+    }
+
+    if (accepted) {
+      // Let the platform decode the packet as if we've never read it
+      byteBuf.readerIndex(originalReaderIndex);
+      ctx.fireChannelRead(byteBuf);
+    } else {
+      byteBuf.release();
+    }
+  }
+
+  private boolean handleHandshake(final @NotNull ChannelHandlerContext ctx,
+                                  final @NotNull ByteBuf byteBuf) throws Exception {
+    checkState(ProtocolUtil.readVarInt(byteBuf) == 0x00, "expected handshake");
+    final int protocol = ProtocolUtil.readVarInt(byteBuf);
+    // We don't need the hostname, but it must not be empty
+    final int hostnameLength = ProtocolUtil.readVarInt(byteBuf);
+    checkState(hostnameLength > 0 && byteBuf.isReadable(hostnameLength), "bad hostname length");
+    byteBuf.skipBytes(hostnameLength);
+    byteBuf.skipBytes(Short.BYTES); // port
+    final int intent = ProtocolUtil.readVarInt(byteBuf);
+    checkState(!byteBuf.isReadable(), "handshake not read to end");
+
+    switch (intent) {
+      case STATUS:
+        // We don't care about server pings; remove the handler
+        ctx.pipeline().remove(this);
+        return true;
+      case LOGIN:
+      case TRANSFER:
+        break;
+      default:
+        throw ProtocolUtil.DEBUG ? new DecoderException("Bad handshake intent " + intent)
+          : QuietDecoderException.INSTANCE;
+    }
+
+    protocolVersion = ProtocolVersion.fromId(protocol);
+    // Sonar does not support snapshots or Minecraft versions older than 1.7.2
+    if (protocolVersion.isUnknown()) {
+      reject(ctx, unsupportedVersionBundle, ProtocolVersion.MINECRAFT_1_7_2);
+      return false;
+    }
+    // Check if the protocol ID of the player is not allowed to enter the server
+    if (Sonar.get0().getConfig().getVerification().getBlacklistedProtocols().contains(protocol)) {
+      reject(ctx, protocolBlacklistedBundle, protocolVersion);
+      return false;
+    }
+    // Check if the player failed the verification too many times or is inside a blacklisted range
+    if (inetAddress != null && Sonar.get0().getAntiBot().isBlacklisted(inetAddress)) {
+      reject(ctx, blacklistedBundle, protocolVersion);
+      return false;
+    }
+    return true;
+  }
+
+  private boolean handleLoginStart(final @NotNull ChannelHandlerContext ctx,
+                                   final @NotNull ByteBuf byteBuf) throws Exception {
+    checkState(ProtocolUtil.readVarInt(byteBuf) == 0x00, "expected login start");
+    // We only need the username; the rest of the packet is validated by the platform
+    final int usernameLength = ProtocolUtil.readVarInt(byteBuf);
+    checkState(usernameLength > 0 && usernameLength <= MAXIMUM_USERNAME_BYTES
+      && byteBuf.isReadable(usernameLength), "bad username length");
+
+    // Verified players are never rate-limited, so only check them if the IP address is rate-limited
+    if (inetAddress != null
+      && Sonar.get0().getAntiBot().shouldVerifyNewPlayers()
+      && Sonar.get0().getAntiBot().getRatelimiter().isRatelimited(inetAddress)) {
+      final String username = byteBuf.toString(byteBuf.readerIndex(), usernameLength, StandardCharsets.UTF_8);
+      final CompletableFuture<Boolean> verified = Sonar.get0().getVerifiedPlayerController()
+        .isVerified(username, inetAddress);
+      // Let the inbound handler wait for the database if we don't know the answer yet
+      if (verified.isDone() && !verified.isCompletedExceptionally() && !verified.join()) {
+        reject(ctx, reconnectedTooFastBundle, protocolVersion);
+        return false;
+      }
+    }
+    // We've done our job - deject this pipeline
+    ctx.pipeline().remove(this);
+    return true;
+  }
+
+  private void reject(final @NotNull ChannelHandlerContext ctx,
+                      final @NotNull SonarPacketBundle disconnect,
+                      final @NotNull ProtocolVersion protocolVersion) {
+    // Rejected connections still count as login attempts for the attack tracker
+    GlobalSonarStatistics.countLogin();
+    rejected = true;
+    // We're positioned after the frame decoder (and before the frame encoder),
+    // so the pre-framed disconnect packet can be written directly.
+    final ByteBuf byteBuf = disconnect.retainedDuplicate(protocolVersion);
+    if (byteBuf == null) {
+      ctx.close();
+      return;
+    }
+    // Mirrors ProtocolUtil#closeWith, but writes from this handler's context
+    if (protocolVersion.lessThan(ProtocolVersion.MINECRAFT_1_8)) {
+      ctx.channel().config().setAutoRead(false);
+      ctx.executor().schedule(() -> {
+        ctx.writeAndFlush(byteBuf).addListener(ChannelFutureListener.CLOSE);
+      }, 250L, TimeUnit.MILLISECONDS);
+    } else {
+      ctx.writeAndFlush(byteBuf).addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+
+  private static void checkState(final boolean state, final @NotNull String message) {
+    if (!state) {
+      throw ProtocolUtil.DEBUG ? new DecoderException(message) : QuietDecoderException.INSTANCE;
+    }
+  }
+}
@@ -22,14 +22,31 @@
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderException;
 import io.netty.util.ByteProcessor;
+import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
 
 import java.util.List;
+import java.util.function.IntSupplier;
 
 // https://github.com/PaperMC/Velocity/blob/dev/3.0.0/proxy/src/main/java/com/velocitypowered/proxy/protocol/netty/MinecraftVarintFrameDecoder.java
+@RequiredArgsConstructor
 public final class MinecraftVarInt21FrameDecoder extends ByteToMessageDecoder {
+  // Maximum frame length in the current state of the connection
+  private final IntSupplier maxFrameLength;
+  private final CumulationLimiter.Tracker cumulationTracker = new CumulationLimiter.Tracker();
+
+  @Override
+  public void channelRead(final @NotNull ChannelHandlerContext ctx, final @NotNull Object msg) throws Exception {
+    super.channelRead(ctx, msg);
+    cumulationTracker.update(ctx.channel(), internalBuffer().readableBytes());
+  }
+
+  @Override
+  protected void handlerRemoved0(final @NotNull ChannelHandlerContext ctx) throws Exception {
+    cumulationTracker.update(ctx.channel(), 0);
+  }
 
   @Override
   protected void decode(final @NotNull ChannelHandlerContext ctx,
@@ -58,6 +75,11 @@ protected void decode(final @NotNull ChannelHandlerContext ctx,
     if (length <= 0) {
       throw ProtocolUtil.DEBUG ? new DecoderException("Bad VarInt length: " + length) : QuietDecoderException.INSTANCE;
     }
+    // Don't even start accumulating frames that cannot be valid in the current state
+    if (length > maxFrameLength.getAsInt()) {
+      throw ProtocolUtil.DEBUG ? new DecoderException("Frame too large: " + length
+        + " max: " + maxFrameLength.getAsInt()) : QuietDecoderException.INSTANCE;
+    }
 
     if (byteBuf.readableBytes() < length) {
       byteBuf.resetReaderIndex();
@@ -66,7 +88,10 @@ protected void decode(final @NotNull ChannelHandlerContext ctx,
     }
   }
 
-  private static int readRawVarInt21(final @NotNull ByteBuf byteBuf) {
+  /**
+   * Reads the length prefix of a frame; the reader index is left untouched if the VarInt is incomplete
+   */
+  public static int readRawVarInt21(final @NotNull ByteBuf byteBuf) {
     if (byteBuf.readableBytes() < 4) {
       return readRawVarIntSmallBuffer(byteBuf);
     }
@@ -20,8 +20,10 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.common.protocol.SonarPacketBundle;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 
 import java.util.List;
@@ -31,6 +33,18 @@
 public final class MinecraftVarIntLengthEncoder extends MessageToMessageEncoder<ByteBuf> {
   public static final MinecraftVarIntLengthEncoder INSTANCE = new MinecraftVarIntLengthEncoder();
 
+  @Override
+  public void write(final @NotNull ChannelHandlerContext ctx,
+                    final @NotNull Object msg,
+                    final @NotNull ChannelPromise promise) throws Exception {
+    // Bundles already contain length-prefixed packets, so we only have to unwrap them
+    if (msg instanceof SonarPacketBundle.Framed) {
+      ctx.write(((SonarPacketBundle.Framed) msg).content(), promise);
+      return;
+    }
+    super.write(ctx, msg, promise);
+  }
+
   @Override
   protected void encode(final @NotNull ChannelHandlerContext ctx,
                         final @NotNull ByteBuf byteBuf,
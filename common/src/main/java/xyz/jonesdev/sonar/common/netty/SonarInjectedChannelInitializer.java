@@ -25,6 +25,7 @@
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.SonarPlatform;
 import xyz.jonesdev.sonar.common.InboundHandler;
+import xyz.jonesdev.sonar.common.statistics.EventLoopMonitor;
 import xyz.jonesdev.sonar.common.util.FakeChannelUtil;
 import xyz.jonesdev.sonar.common.util.exception.ReflectiveOperationException;
 
@@ -33,6 +34,7 @@
 import java.lang.invoke.MethodType;
 import java.util.function.Consumer;
 
+import static xyz.jonesdev.sonar.api.antibot.ChannelPipelines.SONAR_HANDSHAKE_FILTER;
 import static xyz.jonesdev.sonar.api.antibot.ChannelPipelines.SONAR_INBOUND_HANDLER;
 
 @RequiredArgsConstructor
@@ -71,6 +73,7 @@ public static void inject(final @NotNull Channel channel, final Consumer<Channel
     // Inject Sonar's channel handler into the pipeline;
     // Also make sure the player is not a fake player to avoid compatibility issues
     if (channel.isActive() && !FakeChannelUtil.isFakeChannel(channel)) {
+      EventLoopMonitor.register(channel.eventLoop());
       final InboundHandler inboundHandler = new InboundHandler(sonarPipelineInjector);
       // We need to be careful on Bukkit, as the encoder can be different
       if (Sonar.get0().getPlatform() == SonarPlatform.BUKKIT) {
@@ -78,6 +81,12 @@ public static void inject(final @NotNull Channel channel, final Consumer<Channel
         channel.pipeline().addBefore(encoder, SONAR_INBOUND_HANDLER, inboundHandler);
       } else {
         channel.pipeline().addFirst(SONAR_INBOUND_HANDLER, inboundHandler);
+        // Proxies decode the handshake into their own packet objects;
+        // filter the raw packets right after they have been framed to avoid that overhead
+        if (HandshakePreFilter.ENABLED && channel.pipeline().context(HandshakePreFilter.PROXY_FRAME_DECODER) != null) {
+          channel.pipeline().addAfter(HandshakePreFilter.PROXY_FRAME_DECODER, SONAR_HANDSHAKE_FILTER,
+            new HandshakePreFilter(channel.remoteAddress()));
+        }
       }
     }
   }
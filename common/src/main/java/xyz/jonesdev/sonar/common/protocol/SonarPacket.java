@@ -48,7 +48,7 @@ default int expectedMinLength(final ProtocolVersion protocolVersion) {
 
   /**
    * @param protocolVersion Protocol version of the player
-   * @return The maximum allowed length of the decoded packet
+   * @return The maximum allowed length of the decoded packet; required for every packet that can be decoded
    */
   default int expectedMaxLength(final ProtocolVersion protocolVersion) {
     return -1;
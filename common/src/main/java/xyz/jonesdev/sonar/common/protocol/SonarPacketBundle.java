@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
+import xyz.jonesdev.sonar.common.util.ProtocolUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion.ID_TO_PROTOCOL_CONSTANT;
+
+/**
+ * Sequence of packets that is encoded, framed and concatenated once per protocol version,
+ * so it can be sent to a player with a single write without going through the encoders.
+ */
+public final class SonarPacketBundle {
+  // Maps every protocol version to a (possibly shared) buffer holding all framed packets
+  private final IntObjectMap<ByteBuf> cachedBuffers = new IntObjectHashMap<>(ID_TO_PROTOCOL_CONSTANT.size());
+  // Every distinct buffer is only stored once, so we know what to release
+  private final List<ByteBuf> distinctBuffers = new ArrayList<>();
+
+  /**
+   * @param packetRegistry Registry used to look up the clientbound packet IDs
+   * @param sequence       Packets to send for a protocol version, or null if the version is not supported
+   */
+  public SonarPacketBundle(final @NotNull SonarPacketRegistry packetRegistry,
+                           final @NotNull Function<ProtocolVersion, List<SonarPacket>> sequence) {
+    final ByteBuf packetBuf = Unpooled.buffer();
+    final ByteBuf byteBuf = Unpooled.buffer();
+    try {
+      for (final ProtocolVersion protocolVersion : ID_TO_PROTOCOL_CONSTANT.values()) {
+        final List<SonarPacket> packets = sequence.apply(protocolVersion);
+        if (packets == null) {
+          continue;
+        }
+
+        byteBuf.clear();
+        try {
+          final SonarPacketRegistry.ProtocolRegistry protocolRegistry = packetRegistry.getProtocolRegistry(
+            SonarPacketRegistry.Direction.CLIENTBOUND, protocolVersion);
+          for (final SonarPacket packet : packets) {
+            packetBuf.clear();
+            ProtocolUtil.writeVarInt(packetBuf, protocolRegistry.getPacketId(packet instanceof SonarPacketSnapshot
+              ? ((SonarPacketSnapshot) packet).getOriginalPacketClass() : packet.getClass()));
+            packet.encode(packetBuf, protocolVersion);
+            // Prefix every packet with its length, just like MinecraftVarIntLengthEncoder would
+            ProtocolUtil.writeVarInt(byteBuf, packetBuf.readableBytes());
+            byteBuf.writeBytes(packetBuf);
+          }
+        } catch (Throwable throwable) {
+          // Players using this version will simply receive the packets one by one
+          Sonar.get0().getLogger().error("Could not encode packet bundle for version {}: {}",
+            protocolVersion, throwable);
+          continue;
+        }
+
+        // Many protocol versions share the same encoded data,
+        // so we only need to keep one buffer for all of them.
+        ByteBuf cached = null;
+        for (final ByteBuf distinct : distinctBuffers) {
+          if (distinct.equals(byteBuf)) {
+            cached = distinct;
+            break;
+          }
+        }
+
+        if (cached == null) {
+          // Copy the encoded packets into an exactly sized, pooled direct buffer
+          final int length = byteBuf.readableBytes();
+          cached = PooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+          cached.writeBytes(byteBuf);
+          distinctBuffers.add(cached);
+        }
+        cachedBuffers.put(protocolVersion.getProtocol(), cached);
+      }
+    } finally {
+      // Make sure to release the buffers to avoid memory leaks
+      packetBuf.release();
+      byteBuf.release();
+    }
+  }
+
+  /**
+   * Returns a message that writes the bundle for the given protocol version to a channel.
+   * The message skips the packet and length encoders since all packets are already framed.
+   *
+   * @param protocolVersion Protocol version of the player
+   * @return Framed bundle, or null if no bundle could be built for the given protocol version
+   */
+  public @Nullable Framed retainedFramed(final @NotNull ProtocolVersion protocolVersion) {
+    final ByteBuf cached = retainedDuplicate(protocolVersion);
+    return cached == null ? null : new Framed(cached);
+  }
+
+  /**
+   * Returns a retained duplicate of the cached buffer for the given protocol version.
+   * The buffer must be written after the length encoder since all packets are already framed.
+   *
+   * @param protocolVersion Protocol version of the player
+   * @return Retained duplicate of the framed packets, or null if no bundle exists for the given protocol version
+   */
+  public @Nullable ByteBuf retainedDuplicate(final @NotNull ProtocolVersion protocolVersion) {
+    final ByteBuf cached = cachedBuffers.get(protocolVersion.getProtocol());
+    return cached == null ? null : cached.retainedDuplicate();
+  }
+
+  /**
+   * Releases all cached buffers of this bundle.
+   * This bundle must not be used anymore after calling this method.
+   */
+  public void release() {
+    for (final ByteBuf distinct : distinctBuffers) {
+      distinct.release();
+    }
+    distinctBuffers.clear();
+    cachedBuffers.clear();
+  }
+
+  /**
+   * Buffer holding one or more packets that already have a packet ID and a length prefix.
+   */
+  public static final class Framed extends DefaultByteBufHolder {
+    Framed(final @NotNull ByteBuf content) {
+      super(content);
+    }
+  }
+}
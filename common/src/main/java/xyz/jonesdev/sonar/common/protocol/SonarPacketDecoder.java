@@ -21,80 +21,214 @@
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.DecoderException;
+import io.netty.util.ByteProcessor;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
+import xyz.jonesdev.sonar.common.netty.CumulationLimiter;
+import xyz.jonesdev.sonar.common.netty.MinecraftVarInt21FrameDecoder;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
 
 import static xyz.jonesdev.sonar.common.protocol.SonarPacketPreparer.maxTotalPacketsSent;
 
+/**
+ * Decodes the packets of a verifying player and passes them to the listener.
+ * <br>
+ * Every packet type is only instantiated once per channel and then decoded into again for each packet;
+ * a packet therefore only belongs to the listener while it is being handled
+ * and must not be referenced after {@link SonarPacketListener#handle} has returned.
+ * <br>
+ * If {@link #framed} is set, the decoder also splits the frames itself: it reads the frame length,
+ * packet ID and payload in place from the received buffer (or from the cumulation if a frame was split)
+ * instead of relying on {@link MinecraftVarInt21FrameDecoder} to allocate a slice for every frame.
+ */
 @RequiredArgsConstructor
 public final class SonarPacketDecoder extends ChannelInboundHandlerAdapter {
+  public static final boolean FUSED = Boolean.getBoolean("sonar.fused-decoder");
+  private static final int PACKET_TYPES = SonarPacketType.values().length;
+
   private final ProtocolVersion protocolVersion;
+  private final boolean framed;
+  // Reusable packet instances of this channel, indexed by their type
+  private final SonarPacket[] packets = new SonarPacket[PACKET_TYPES];
   private SonarPacketRegistry.ProtocolRegistry registry;
   @Setter
   private SonarPacketListener listener;
   private int totalPacketsSent;
+  // Only used if this decoder is framed; holds the bytes of a frame that hasn't been fully received yet
+  private ByteBuf cumulation;
+  private final CumulationLimiter.Tracker cumulationTracker = new CumulationLimiter.Tracker();
+  private boolean decoding;
 
   public void updateRegistry(final @NotNull SonarPacketRegistry registry) {
     this.registry = registry.getProtocolRegistry(SonarPacketRegistry.Direction.SERVERBOUND, protocolVersion);
   }
 
+  /**
+   * @return Maximum length of a frame that can be received in the current state
+   */
+  public int getMaxFrameLength() {
+    return registry.getMaxFrameLength();
+  }
+
   @Override
   public void channelRead(final @NotNull ChannelHandlerContext ctx, final Object msg) throws Exception {
     if (msg instanceof ByteBuf) {
       final ByteBuf byteBuf = (ByteBuf) msg;
 
+      if (framed) {
+        decodeFrames(ctx, byteBuf);
+        return;
+      }
+
       try {
-        // Release the ByteBuf if the connection is not active
-        // or the ByteBuf doesn't contain any data to avoid
-        // memory leaks or other potential exploits.
-        if (!ctx.channel().isActive() || !byteBuf.isReadable()) {
-          return;
-        }
+        decodeFrame(ctx, byteBuf);
+      } finally {
+        // Release the ByteBuf to avoid memory leaks
+        byteBuf.release();
+      }
+    }
+  }
 
-        // Don't allow the player to spam packets to overload netty
-        if (++totalPacketsSent > maxTotalPacketsSent) {
-          throw ProtocolUtil.DEBUG ? new DecoderException("Sent too many packets") : QuietDecoderException.INSTANCE;
-        }
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext ctx) throws Exception {
+    // The cumulation is still in use if the listener removed this handler; it is released after decoding
+    if (!decoding) {
+      releaseCumulation();
+      cumulationTracker.update(ctx.channel(), 0);
+    }
+  }
 
-        // Read the packet ID and then create the packet from it
-        final int packetId = ProtocolUtil.readVarInt(byteBuf);
-        final SonarPacket packet = registry.createPacket(packetId);
+  private void decodeFrames(final @NotNull ChannelHandlerContext ctx, final @NotNull ByteBuf in) throws Exception {
+    final ByteBuf byteBuf;
+    if (cumulation == null) {
+      // Most reads contain whole frames, so we can usually decode them directly from the received buffer
+      byteBuf = in;
+    } else {
+      cumulation.writeBytes(in);
+      in.release();
+      byteBuf = cumulation;
+    }
 
-        // Skip the packet if it's not registered within Sonar's packet registry
-        if (packet == null) {
-          return;
+    decoding = true;
+    try {
+      while (byteBuf.isReadable() && !ctx.isRemoved() && ctx.channel().isActive()) {
+        // Skip any runs of 0x00 we might find
+        final int packetStart = byteBuf.forEachByte(ByteProcessor.FIND_NON_NUL);
+        if (packetStart == -1) {
+          byteBuf.skipBytes(byteBuf.readableBytes());
+          break;
         }
+        byteBuf.readerIndex(packetStart);
 
-        // Ensure that the packet isn't too large or too small
-        checkPacketSize(byteBuf.readableBytes(), packet);
-
-        try {
-          // Try to decode the packet for the given protocol version
-          packet.decode(byteBuf, protocolVersion);
-        } catch (Throwable throwable) {
-          throw ProtocolUtil.DEBUG ? new DecoderException(throwable) : QuietDecoderException.INSTANCE;
+        // Try to read the length of the frame
+        final int length = MinecraftVarInt21FrameDecoder.readRawVarInt21(byteBuf);
+        if (packetStart == byteBuf.readerIndex()) {
+          break;
+        }
+        if (length <= 0) {
+          throw ProtocolUtil.DEBUG ? new DecoderException("Bad VarInt length: " + length)
+            : QuietDecoderException.INSTANCE;
+        }
+        // Don't even start accumulating frames that cannot be valid in the current state
+        if (length > registry.getMaxFrameLength()) {
+          throw ProtocolUtil.DEBUG ? new DecoderException("Frame too large: " + length
+            + " max: " + registry.getMaxFrameLength()) : QuietDecoderException.INSTANCE;
+        }
+        if (byteBuf.readableBytes() < length) {
+          byteBuf.readerIndex(packetStart);
+          break;
         }
 
-        // Check if the packet still has bytes left after we decoded it
-        if (byteBuf.isReadable()) {
-          throw ProtocolUtil.DEBUG ? new DecoderException("Could not read packet to end ("
-            + byteBuf.readableBytes() + " bytes left)"): QuietDecoderException.INSTANCE;
+        // Limit the buffer to the frame instead of slicing it
+        final int frameEnd = byteBuf.readerIndex() + length;
+        final int writerIndex = byteBuf.writerIndex();
+        byteBuf.writerIndex(frameEnd);
+        try {
+          decodeFrame(ctx, byteBuf);
+        } finally {
+          byteBuf.writerIndex(writerIndex);
+          byteBuf.readerIndex(frameEnd);
         }
+      }
+    } finally {
+      decoding = false;
+      final boolean keepReading = !ctx.isRemoved() && ctx.channel().isActive();
 
-        // Let our verification handler process the packet
-        if (listener != null) {
-          listener.handle(packet);
-          // Make sure to let the timeout handler know about this packet
-          ctx.fireChannelRead(packet);
+      if (byteBuf == in) {
+        // Keep the start of the next frame until the rest of it arrives
+        if (keepReading && byteBuf.isReadable()) {
+          cumulation = ctx.alloc().buffer(byteBuf.readableBytes());
+          cumulation.writeBytes(byteBuf);
         }
-      } finally {
-        // Release the ByteBuf to avoid memory leaks
-        byteBuf.release();
+        in.release();
+      } else if (!keepReading || !cumulation.isReadable()) {
+        releaseCumulation();
+      } else {
+        cumulation.discardSomeReadBytes();
       }
+      cumulationTracker.update(ctx.channel(), cumulation == null ? 0 : cumulation.readableBytes());
+    }
+  }
+
+  private void releaseCumulation() {
+    if (cumulation != null) {
+      cumulation.release();
+      cumulation = null;
+    }
+  }
+
+  private void decodeFrame(final @NotNull ChannelHandlerContext ctx, final @NotNull ByteBuf byteBuf) throws Exception {
+    // Ignore the frame if the connection is not active
+    // or the ByteBuf doesn't contain any data to avoid
+    // memory leaks or other potential exploits.
+    if (!ctx.channel().isActive() || !byteBuf.isReadable()) {
+      return;
+    }
+
+    // Don't allow the player to spam packets to overload netty
+    if (++totalPacketsSent > maxTotalPacketsSent) {
+      throw ProtocolUtil.DEBUG ? new DecoderException("Sent too many packets") : QuietDecoderException.INSTANCE;
+    }
+
+    // Read the packet ID and then create the packet from it
+    final int packetId = ProtocolUtil.readVarInt(byteBuf);
+    final SonarPacketType packetType = registry.getPacketType(packetId);
+
+    // Skip the packet if it's not registered within Sonar's packet registry
+    if (packetType == null) {
+      return;
+    }
+
+    SonarPacket packet = packets[packetType.ordinal()];
+    if (packet == null) {
+      packet = registry.createPacket(packetId);
+      packets[packetType.ordinal()] = packet;
+    }
+
+    // Ensure that the packet isn't too large or too small
+    checkPacketSize(byteBuf.readableBytes(), packet);
+
+    try {
+      // Try to decode the packet for the given protocol version
+      packet.decode(byteBuf, protocolVersion);
+    } catch (Throwable throwable) {
+      throw ProtocolUtil.DEBUG ? new DecoderException(throwable) : QuietDecoderException.INSTANCE;
+    }
+
+    // Check if the packet still has bytes left after we decoded it
+    if (byteBuf.isReadable()) {
+      throw ProtocolUtil.DEBUG ? new DecoderException("Could not read packet to end ("
+        + byteBuf.readableBytes() + " bytes left)"): QuietDecoderException.INSTANCE;
+    }
+
+    // Let our verification handler process the packet
+    if (listener != null) {
+      listener.handle(packetType, packet);
+      // Make sure to let the timeout handler know about this packet
+      ctx.fireChannelRead(packet);
     }
   }
 
@@ -18,16 +18,19 @@
 package xyz.jonesdev.sonar.common.protocol;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 
+import java.util.List;
+
 @RequiredArgsConstructor
-public final class SonarPacketEncoder extends MessageToByteEncoder<SonarPacket> {
+public final class SonarPacketEncoder extends MessageToMessageEncoder<SonarPacket> {
   private final ProtocolVersion protocolVersion;
   @Getter
   private SonarPacketRegistry packetRegistry;
@@ -39,13 +42,31 @@ public void updateRegistry(final @NotNull SonarPacketRegistry packetRegistry) {
   }
 
   @Override
-  protected void encode(final ChannelHandlerContext ctx,
+  protected void encode(final @NotNull ChannelHandlerContext ctx,
                         final @NotNull SonarPacket packet,
-                        final @NotNull ByteBuf out) throws Exception {
-    final Class<? extends SonarPacket> originalPacket = packet instanceof SonarPacketSnapshot
-      ? ((SonarPacketSnapshot) packet).getOriginalPacketClass() : packet.getClass();
-    final int packetId = protocolRegistry.getPacketId(originalPacket);
-    ProtocolUtil.writeVarInt(out, packetId);
-    packet.encode(out, protocolVersion);
+                        final @NotNull List<Object> out) throws Exception {
+    if (packet instanceof SonarPacketSnapshot) {
+      final SonarPacketSnapshot snapshot = (SonarPacketSnapshot) packet;
+      final int packetId = protocolRegistry.getPacketId(snapshot.getOriginalPacketClass());
+      // Only the packet ID has to be written; the cached packet data is shared between all channels
+      final ByteBuf cached = snapshot.retainedDuplicate(protocolVersion);
+      final ByteBuf header = ctx.alloc().directBuffer(ProtocolUtil.varIntBytes(packetId));
+      ProtocolUtil.writeVarInt(header, packetId);
+      final CompositeByteBuf composite = ctx.alloc().compositeDirectBuffer(2);
+      composite.addComponents(true, header, cached);
+      out.add(composite);
+      return;
+    }
+
+    final int packetId = protocolRegistry.getPacketId(packet.getClass());
+    final ByteBuf byteBuf = ctx.alloc().ioBuffer();
+    try {
+      ProtocolUtil.writeVarInt(byteBuf, packetId);
+      packet.encode(byteBuf, protocolVersion);
+    } catch (Throwable throwable) {
+      byteBuf.release();
+      throw throwable;
+    }
+    out.add(byteBuf);
   }
 }
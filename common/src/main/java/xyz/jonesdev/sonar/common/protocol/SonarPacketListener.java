@@ -23,9 +23,11 @@
 public interface SonarPacketListener {
 
   /**
-   * Handles the incoming packet
+   * Handles the incoming packet;
+   * the decoder reuses the packet instance, so it must not be referenced after this method returns
    *
+   * @param type   Type of the packet, which determines its class
    * @param packet Packet to handle
    */
-  void handle(final @NotNull SonarPacket packet);
+  void handle(final @NotNull SonarPacketType type, final @NotNull SonarPacket packet);
 }
@@ -36,14 +36,19 @@
 import xyz.jonesdev.sonar.common.protocol.dimension.DimensionType;
 import xyz.jonesdev.sonar.common.protocol.entity.EntityType;
 import xyz.jonesdev.sonar.common.protocol.item.ItemType;
+import xyz.jonesdev.sonar.common.protocol.packets.configuration.FinishConfigurationPacket;
 import xyz.jonesdev.sonar.common.protocol.packets.configuration.RegistryDataPacket;
 import xyz.jonesdev.sonar.common.protocol.packets.login.LoginSuccessPacket;
 import xyz.jonesdev.sonar.common.protocol.packets.play.*;
 import xyz.jonesdev.sonar.common.util.ComponentHolder;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.function.Function;
 
 @UtilityClass
 public class SonarPacketPreparer {
@@ -130,10 +135,49 @@ public class SonarPacketPreparer {
   public SonarPacket tooManyOnlinePerIP;
   public SonarPacket[] xpCountdown;
   public SonarPacket updateTime;
+  // RegistryData and FinishConfiguration packets sent at once during the configuration phase
+  public SonarPacketBundle registryBundle;
+  // Packets sent when joining the game; index 0 is used without a collision platform,
+  // index i + 1 contains the collision platform of BLOCKS_PACKETS[i]
+  public SonarPacketBundle[] joinBundles = new SonarPacketBundle[BLOCKS_PACKETS.length + 1];
+  // Disconnect packets sent by the handshake pre-filter before the platform decodes anything
+  public SonarPacketBundle blacklistedBundle;
+  public SonarPacketBundle reconnectedTooFastBundle;
+  public SonarPacketBundle protocolBlacklistedBundle;
+  public SonarPacketBundle unsupportedVersionBundle;
 
   public static int maxMovementTick, dynamicSpawnYPosition, maxTotalPacketsSent;
 
+  // Snapshots taken during the last two reloads; older snapshots are released in prepare()
+  private List<SonarPacketSnapshot> preparedSnapshots = new ArrayList<>();
+  private List<SonarPacketSnapshot> retiredSnapshots = new ArrayList<>();
+  private List<SonarPacketBundle> preparedBundles = new ArrayList<>();
+  private List<SonarPacketBundle> retiredBundles = new ArrayList<>();
+
+  private @NotNull SonarPacketSnapshot snapshot(final @NotNull SonarPacket packet) {
+    final SonarPacketSnapshot snapshot = new SonarPacketSnapshot(packet);
+    preparedSnapshots.add(snapshot);
+    return snapshot;
+  }
+
+  private @NotNull SonarPacketBundle bundle(final @NotNull SonarPacketRegistry packetRegistry,
+                                            final @NotNull Function<ProtocolVersion, List<SonarPacket>> sequence) {
+    final SonarPacketBundle bundle = new SonarPacketBundle(packetRegistry, sequence);
+    preparedBundles.add(bundle);
+    return bundle;
+  }
+
   public void prepare() {
+    // Release the snapshots of the reload before the previous one. Every write retains its own
+    // duplicate of the cached buffer, so we only need to make sure that no handler is still about
+    // to write one of these snapshots; a full reload cycle is more than enough for that.
+    retiredSnapshots.forEach(SonarPacketSnapshot::release);
+    retiredSnapshots = preparedSnapshots;
+    preparedSnapshots = new ArrayList<>();
+    retiredBundles.forEach(SonarPacketBundle::release);
+    retiredBundles = preparedBundles;
+    preparedBundles = new ArrayList<>();
+
     // Preload the packet registry to avoid CPU/RAM issues on 1st connection
     Sonar.get0().getLogger().info("Preloading all registered packets...");
     //noinspection ResultOfMethodCallIgnored
@@ -145,10 +189,10 @@ public void prepare() {
     if (username.length() > 16) {
       username = username.substring(0, 16);
     }
-    loginSuccess = new SonarPacketSnapshot(new LoginSuccessPacket(uuid, username, true));
+    loginSuccess = snapshot(new LoginSuccessPacket(uuid, username, true));
 
     // Prepare JoinGame packet
-    joinGame = new SonarPacketSnapshot(new JoinGamePacket(PLAYER_ENTITY_ID,
+    joinGame = snapshot(new JoinGamePacket(PLAYER_ENTITY_ID,
       Sonar.get0().getConfig().getVerification().getGamemode().getId(),
       -1, 0, 0,
       RANDOM.nextInt(3), 1, 0, 0,
@@ -169,16 +213,16 @@ public void prepare() {
 
     // Set the dynamic block and collide Y position based on the maximum fall distance
     dynamicSpawnYPosition = PLATFORM_Y_POSITION + (int) Math.ceil(fallDistance);
-    defaultSpawnPosition = new SonarPacketSnapshot(new SetDefaultSpawnPositionPacket(
+    defaultSpawnPosition = snapshot(new SetDefaultSpawnPositionPacket(
       "minecraft:overworld",
       SPAWN_X_POSITION, IN_AIR_Y_POSITION, SPAWN_Z_POSITION));
-    spawnPosition = new SonarPacketSnapshot(new SetPlayerPositionRotationPacket(
+    spawnPosition = snapshot(new SetPlayerPositionRotationPacket(
       SPAWN_X_POSITION, IN_AIR_Y_POSITION, SPAWN_Z_POSITION,
       0, 0, FIRST_TELEPORT_ID, 0, false, false, true));
-    fallStartPosition = new SonarPacketSnapshot(new SetPlayerPositionRotationPacket(
+    fallStartPosition = snapshot(new SetPlayerPositionRotationPacket(
       SPAWN_X_POSITION, dynamicSpawnYPosition - IN_AIR_Y_POSITION, SPAWN_Z_POSITION,
       0, -90, SECOND_TELEPORT_ID, 1 << 1, false, false, true));
-    fallStartPositionLegacy = new SonarPacketSnapshot(new SetPlayerPositionRotationPacket(
+    fallStartPositionLegacy = snapshot(new SetPlayerPositionRotationPacket(
       SPAWN_X_POSITION, dynamicSpawnYPosition, SPAWN_Z_POSITION,
       0, -90, 0, 0, false, false, true));
 
@@ -195,21 +239,25 @@ public void prepare() {
           blocks[index++] = new BlockUpdate(position, POSSIBLE_BLOCK_TYPES[i]);
         }
       }
-      BLOCKS_PACKETS[i] = new SonarPacketSnapshot(new UpdateSectionBlocksPacket(0, 0, blocks));
+      BLOCKS_PACKETS[i] = snapshot(new UpdateSectionBlocksPacket(0, 0, blocks));
     }
 
     // Prepare disconnect packets during login
-    blacklisted = new SonarPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getBlacklisted(), true));
-    alreadyVerifying = new SonarPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getAlreadyVerifying(), true));
-    alreadyQueued = new SonarPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getAlreadyQueued(), true));
-    protocolBlacklisted = new SonarPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getProtocolBlacklisted(), true));
-    reconnectedTooFast = new SonarPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getTooFastReconnect(), true));
-    unsupportedVersion = new SonarPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getUnsupportedVersion(), true));
-    tooManyOnlinePerIP = new SonarPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getTooManyOnlinePerIp(), true));
+    blacklisted = snapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getBlacklisted(), true));
+    alreadyVerifying = snapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getAlreadyVerifying(), true));
+    alreadyQueued = snapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getAlreadyQueued(), true));
+    protocolBlacklisted = snapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getProtocolBlacklisted(), true));
+    reconnectedTooFast = snapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getTooFastReconnect(), true));
+    unsupportedVersion = snapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getUnsupportedVersion(), true));
+    tooManyOnlinePerIP = snapshot(new DisconnectPacket(Sonar.get0().getConfig().getTooManyOnlinePerIp(), true));
+    blacklistedBundle = bundle(SonarPacketRegistry.LOGIN, protocolVersion -> List.of(blacklisted));
+    reconnectedTooFastBundle = bundle(SonarPacketRegistry.LOGIN, protocolVersion -> List.of(reconnectedTooFast));
+    protocolBlacklistedBundle = bundle(SonarPacketRegistry.LOGIN, protocolVersion -> List.of(protocolBlacklisted));
+    unsupportedVersionBundle = bundle(SonarPacketRegistry.LOGIN, protocolVersion -> List.of(unsupportedVersion));
 
     // Prepare transfer packet
     if (Sonar.get0().getConfig().getGeneralConfig().getBoolean("verification.transfer.enabled")) {
-      transferToOrigin = new SonarPacketSnapshot(new TransferPacket(
+      transferToOrigin = snapshot(new TransferPacket(
         Sonar.get0().getConfig().getGeneralConfig().getString("verification.transfer.destination-host"),
         Sonar.get0().getConfig().getGeneralConfig().getInt("verification.transfer.destination-port")));
     } else {
@@ -224,25 +272,45 @@ public void prepare() {
       updateTime = null;
     }
 
+    // Prepare the pre-framed packet bundles for the configuration phase and the gravity check
+    if (registryBundle == null) {
+      // The registry packets never change, so we only need to build this bundle once
+      registryBundle = new SonarPacketBundle(SonarPacketRegistry.CONFIG, protocolVersion -> {
+        if (protocolVersion.lessThan(ProtocolVersion.MINECRAFT_1_20_2)) {
+          return null;
+        }
+        final List<SonarPacket> packets = new ArrayList<>(Arrays.asList(getRegistryPackets(protocolVersion)));
+        packets.add(FinishConfigurationPacket.INSTANCE);
+        return packets;
+      });
+    }
+    joinBundles[0] = bundle(SonarPacketRegistry.GAME,
+      protocolVersion -> getJoinPackets(protocolVersion, null));
+    for (int i = 0; i < BLOCKS_PACKETS.length; i++) {
+      final SonarPacket platform = BLOCKS_PACKETS[i];
+      joinBundles[i + 1] = bundle(SonarPacketRegistry.GAME,
+        protocolVersion -> getJoinPackets(protocolVersion, platform));
+    }
+
     // If the welcome message is empty, we don't need to send a message to the player
     final String welcome = Sonar.get0().getConfig().getMessagesConfig().getString("verification.welcome");
     if (welcome.isEmpty()) {
       welcomeMessage = null;
     } else {
-      welcomeMessage = new SonarPacketSnapshot(new SystemChatPacket(new ComponentHolder(
+      welcomeMessage = snapshot(new SystemChatPacket(new ComponentHolder(
         MiniMessage.miniMessage().deserialize(welcome,
           Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())))));
     }
 
     if (Sonar.get0().getConfig().getVerification().getMap().getTiming() != SonarConfiguration.Verification.Timing.NEVER
       || Sonar.get0().getConfig().getVerification().getGravity().isCaptchaOnFail()) {
-      enterCodeMessage = new SonarPacketSnapshot(new SystemChatPacket(new ComponentHolder(
+      enterCodeMessage = snapshot(new SystemChatPacket(new ComponentHolder(
         MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("verification.captcha.enter"),
           Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())))));
       incorrectCaptcha = new SonarPacket[Sonar.get0().getConfig().getVerification().getMap().getMaxTries()];
       for (int i = 0; i < incorrectCaptcha.length; i++) {
-        incorrectCaptcha[i] = new SonarPacketSnapshot(new SystemChatPacket(new ComponentHolder(
+        incorrectCaptcha[i] = snapshot(new SystemChatPacket(new ComponentHolder(
           MiniMessage.miniMessage().deserialize(
             Sonar.get0().getConfig().getMessagesConfig().getString("verification.captcha.incorrect"),
             Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
@@ -252,7 +320,7 @@ public void prepare() {
 
       for (int i = 0; i < xpCountdown.length; i++) {
         final float bar = (float) i / xpCountdown.length;
-        xpCountdown[i] = new SonarPacketSnapshot(new SetExperiencePacket(bar, i, 0));
+        xpCountdown[i] = snapshot(new SetExperiencePacket(bar, i, 0));
       }
 
       final CaptchaGenerationStartEvent generationStartEvent = new CaptchaGenerationStartEvent(
@@ -295,6 +363,47 @@ public void prepare() {
       + Sonar.get0().getConfig().getVerification().getMaxPacketCount();
   }
 
+  public static @NotNull List<SonarPacket> getJoinPackets(final @NotNull ProtocolVersion protocolVersion,
+                                                         final SonarPacket platform) {
+    final List<SonarPacket> packets = new ArrayList<>(16);
+    // First, write the JoinGame packet
+    packets.add(joinGame);
+    // Then, write the ClientAbilities packet
+    // This is only necessary if the player is in creative mode
+    if (Sonar.get0().getConfig().getVerification().getGamemode() == SonarConfiguration.Verification.Gamemode.CREATIVE) {
+      packets.add(DEFAULT_ABILITIES);
+    }
+    // Write the DefaultSpawnPosition packet
+    if (protocolVersion.greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_19_3)) {
+      packets.add(defaultSpawnPosition);
+    }
+    // Teleport the player to the position where we're starting to check them
+    if (protocolVersion.greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_8)) {
+      packets.add(spawnPosition);
+      packets.add(fallStartPosition);
+    } else {
+      // 1.7.2-1.7.10 clients do not have relative teleports
+      packets.add(fallStartPositionLegacy);
+    }
+    // 1.20.3+ introduced game events
+    // Make sure the client knows that we're sending chunks next
+    if (protocolVersion.greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_20_3)) {
+      packets.add(START_WRITING_CHUNKS);
+      packets.addAll(Arrays.asList(EMPTY_CHUNK_DATA));
+    } else {
+      packets.add(EMPTY_CHUNK_DATA[0]);
+    }
+    // Spawn the invisible platform below the player
+    if (platform != null) {
+      packets.add(platform);
+    }
+    // Update the world time, if necessary
+    if (updateTime != null) {
+      packets.add(updateTime);
+    }
+    return packets;
+  }
+
   public static SonarPacket[] getRegistryPackets(final @NotNull ProtocolVersion protocolVersion) {
     if (protocolVersion.greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_21_11)) {
       return REGISTRY_SYNC_1_21_11;
@@ -17,8 +17,6 @@
 
 package xyz.jonesdev.sonar.common.protocol;
 
-import io.netty.util.collection.IntObjectHashMap;
-import io.netty.util.collection.IntObjectMap;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
@@ -31,7 +29,9 @@
 import xyz.jonesdev.sonar.common.protocol.packets.login.LoginStartPacket;
 import xyz.jonesdev.sonar.common.protocol.packets.login.LoginSuccessPacket;
 import xyz.jonesdev.sonar.common.protocol.packets.play.*;
+import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -760,7 +760,7 @@ private <T extends SonarPacket> void register(final @NotNull Class<T> clazz,
             throw new IllegalArgumentException("Unknown protocol version " + protocolVersion);
           }
 
-          if (registry.packetIdToSupplier.containsKey(current.packetId)) {
+          if (registry.getPacketType(current.packetId) != null) {
             throw new IllegalArgumentException("Can not register class " + clazz.getSimpleName()
               + " with id " + current.packetId + " for " + registry.protocolVersion
               + " because another packet is already registered");
@@ -772,7 +772,7 @@ private <T extends SonarPacket> void register(final @NotNull Class<T> clazz,
           }
 
           if (!current.encodeOnly) {
-            registry.packetIdToSupplier.put(current.packetId, supplier);
+            registry.registerDecodable(current.packetId, supplier, SonarPacketType.of(clazz));
           }
           registry.packetClassToId.put(clazz, current.packetId);
         }
@@ -782,15 +782,60 @@ private <T extends SonarPacket> void register(final @NotNull Class<T> clazz,
 
   @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
   public static class ProtocolRegistry {
+    // Largest length that fits into the 3-byte VarInt prefix of a frame
+    private static final int MAX_FRAME_LENGTH = (1 << 21) - 1;
+
     private final ProtocolVersion protocolVersion;
-    private final IntObjectMap<Supplier<? extends SonarPacket>> packetIdToSupplier =
-      new IntObjectHashMap<>(16, 0.5f);
+    // Packet IDs are small, so the decodable packets can simply be indexed by their ID
+    private Supplier<? extends SonarPacket>[] packetIdToSupplier = newSupplierArray(0);
+    private SonarPacketType[] packetIdToType = new SonarPacketType[0];
     private final Map<Class<? extends SonarPacket>, Integer> packetClassToId =
       new HashMap<>(16, 0.5f);
+    // Largest frame (packet ID and payload) any of the decodable packets can have
+    private int maxFrameLength;
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<? extends SonarPacket> @NotNull [] newSupplierArray(final int length) {
+      return (Supplier<? extends SonarPacket>[]) new Supplier[length];
+    }
+
+    private void registerDecodable(final int packetId,
+                                   final @NotNull Supplier<? extends SonarPacket> supplier,
+                                   final @NotNull SonarPacketType packetType) {
+      if (packetId >= packetIdToType.length) {
+        final Supplier<? extends SonarPacket>[] suppliers = newSupplierArray(packetId + 1);
+        System.arraycopy(packetIdToSupplier, 0, suppliers, 0, packetIdToSupplier.length);
+        packetIdToSupplier = suppliers;
+        packetIdToType = Arrays.copyOf(packetIdToType, packetId + 1);
+      }
+      packetIdToSupplier[packetId] = supplier;
+      packetIdToType[packetId] = packetType;
+
+      // Every decodable packet needs a limit, otherwise the whole state falls back to the largest frame length
+      final int maxLength = supplier.get().expectedMaxLength(protocolVersion);
+      if (maxLength < 0) {
+        throw new IllegalArgumentException(packetType + " has no expected maximum length for " + protocolVersion);
+      }
+      maxFrameLength = Math.max(maxFrameLength, Math.min(MAX_FRAME_LENGTH,
+        ProtocolUtil.varIntBytes(packetId) + maxLength));
+    }
+
+    /**
+     * @return Maximum length of a frame that can be received in this state
+     */
+    public int getMaxFrameLength() {
+      return maxFrameLength;
+    }
+
+    /**
+     * @return Type of the packet with the given ID, or null if the packet cannot be decoded
+     */
+    public SonarPacketType getPacketType(final int packetId) {
+      return packetId >= 0 && packetId < packetIdToType.length ? packetIdToType[packetId] : null;
+    }
 
     public SonarPacket createPacket(final int packetId) {
-      final var supplier = packetIdToSupplier.get(packetId);
-      return supplier == null ? null : supplier.get();
+      return getPacketType(packetId) == null ? null : packetIdToSupplier[packetId].get();
     }
 
     public int getPacketId(final @NotNull Class<? extends SonarPacket> clazz) {
@@ -18,6 +18,7 @@
 package xyz.jonesdev.sonar.common.protocol;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.EncoderException;
 import io.netty.util.collection.IntObjectHashMap;
@@ -29,22 +30,25 @@
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion.ID_TO_PROTOCOL_CONSTANT;
 
 // https://github.com/Nan1t/NanoLimbo/blob/main/src/main/java/ua/nanit/limbo/protocol/PacketSnapshot.java
 public final class SonarPacketSnapshot implements SonarPacket {
-  private final IntObjectMap<Integer> mappings = new IntObjectHashMap<>(ID_TO_PROTOCOL_CONSTANT.size());
-  private final IntObjectMap<byte[]> cachedBytes = new IntObjectHashMap<>(ID_TO_PROTOCOL_CONSTANT.size());
+  // Maps every protocol version to a (possibly shared) buffer holding the encoded packet
+  private final IntObjectMap<ByteBuf> cachedBuffers = new IntObjectHashMap<>(ID_TO_PROTOCOL_CONSTANT.size());
+  // Every distinct buffer is only stored once, so we know what to release
+  private final List<ByteBuf> distinctBuffers = new ArrayList<>();
   @Getter
   private final Class<? extends SonarPacket> originalPacketClass;
 
   public SonarPacketSnapshot(final @NotNull SonarPacket originalPacket) {
     this.originalPacketClass = originalPacket.getClass();
 
-    final IntObjectMap<Integer> hashedData = new IntObjectHashMap<>(ID_TO_PROTOCOL_CONSTANT.size());
-
     for (final ProtocolVersion protocolVersion : ID_TO_PROTOCOL_CONSTANT.values()) {
-      // Allocate a buffer for each protocol version
+      // Encode the packet into a temporary heap buffer first
       final ByteBuf byteBuf = Unpooled.buffer();
       try {
         try {
@@ -55,20 +59,24 @@ public SonarPacketSnapshot(final @NotNull SonarPacket originalPacket) {
           break;
         }
 
-        final Integer protocol = protocolVersion.getProtocol();
-        final Integer hash = byteBuf.hashCode();
-        final Integer hashed = hashedData.getOrDefault(hash, -1);
+        // Many protocol versions share the same encoded data,
+        // so we only need to keep one buffer for all of them.
+        ByteBuf cached = null;
+        for (final ByteBuf distinct : distinctBuffers) {
+          if (distinct.equals(byteBuf)) {
+            cached = distinct;
+            break;
+          }
+        }
 
-        if (hashed != -1) {
-          mappings.put(protocol, hashed);
-        } else {
-          hashedData.put(hash, protocol);
-          mappings.put(protocol, protocol);
-          // Cache the raw bytes of the encoded packet
-          final byte[] bytes = new byte[byteBuf.readableBytes()];
-          byteBuf.readBytes(bytes);
-          cachedBytes.put(protocol, bytes);
+        if (cached == null) {
+          // Copy the encoded packet into an exactly sized, pooled direct buffer
+          final int length = byteBuf.readableBytes();
+          cached = PooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+          cached.writeBytes(byteBuf);
+          distinctBuffers.add(cached);
         }
+        cachedBuffers.put(protocolVersion.getProtocol(), cached);
       } finally {
         // Make sure to release the buffer to avoid memory leaks
         byteBuf.release();
@@ -76,17 +84,41 @@ public SonarPacketSnapshot(final @NotNull SonarPacket originalPacket) {
     }
   }
 
-  @Override
-  public void encode(final @NotNull ByteBuf byteBuf, final @NotNull ProtocolVersion protocolVersion) throws Exception {
-    final Integer hash = mappings.get(protocolVersion.getProtocol());
-    if (hash == null) {
-      throw ProtocolUtil.DEBUG ? new EncoderException("Unable to find hash") : QuietDecoderException.INSTANCE;
-    }
-    final byte[] bytes = cachedBytes.get(hash);
-    if (bytes == null) {
+  /**
+   * Returns a retained duplicate of the cached buffer for the given protocol version.
+   * The caller is responsible for releasing the returned buffer (usually by writing it to a channel).
+   *
+   * @param protocolVersion Protocol version of the player
+   * @return Retained duplicate of the encoded packet (without the packet ID)
+   */
+  public @NotNull ByteBuf retainedDuplicate(final @NotNull ProtocolVersion protocolVersion) {
+    return getCachedBuffer(protocolVersion).retainedDuplicate();
+  }
+
+  private @NotNull ByteBuf getCachedBuffer(final @NotNull ProtocolVersion protocolVersion) {
+    final ByteBuf cached = cachedBuffers.get(protocolVersion.getProtocol());
+    if (cached == null) {
       throw ProtocolUtil.DEBUG ? new EncoderException("Unable to find cached packet") : QuietDecoderException.INSTANCE;
     }
-    byteBuf.writeBytes(bytes);
+    return cached;
+  }
+
+  /**
+   * Releases all cached buffers of this snapshot.
+   * This snapshot must not be used anymore after calling this method.
+   */
+  public void release() {
+    for (final ByteBuf distinct : distinctBuffers) {
+      distinct.release();
+    }
+    distinctBuffers.clear();
+    cachedBuffers.clear();
+  }
+
+  @Override
+  public void encode(final @NotNull ByteBuf byteBuf, final @NotNull ProtocolVersion protocolVersion) throws Exception {
+    final ByteBuf cached = getCachedBuffer(protocolVersion);
+    byteBuf.writeBytes(cached, cached.readerIndex(), cached.readableBytes());
   }
 
   @Override
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.protocol;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.common.protocol.packets.configuration.FinishConfigurationPacket;
+import xyz.jonesdev.sonar.common.protocol.packets.handshake.HandshakePacket;
+import xyz.jonesdev.sonar.common.protocol.packets.login.LoginAcknowledgedPacket;
+import xyz.jonesdev.sonar.common.protocol.packets.login.LoginStartPacket;
+import xyz.jonesdev.sonar.common.protocol.packets.play.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dense ordinal of every packet Sonar can decode.
+ * The packet registry resolves the type together with the packet ID,
+ * so listeners can switch on the type instead of walking instanceof chains.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum SonarPacketType {
+  HANDSHAKE(HandshakePacket.class),
+  LOGIN_START(LoginStartPacket.class),
+  LOGIN_ACKNOWLEDGED(LoginAcknowledgedPacket.class),
+  CLIENT_INFORMATION(ClientInformationPacket.class),
+  PLUGIN_MESSAGE(PluginMessagePacket.class),
+  FINISH_CONFIGURATION(FinishConfigurationPacket.class),
+  KEEP_ALIVE(KeepAlivePacket.class),
+  CLIENT_TICK_END(ClientTickEndPacket.class),
+  SET_HELD_ITEM(SetHeldItemPacket.class),
+  PADDLE_BOAT(PaddleBoatPacket.class),
+  PLAYER_INPUT(PlayerInputPacket.class),
+  VEHICLE_MOVE(VehicleMovePacket.class),
+  SYSTEM_CHAT(SystemChatPacket.class),
+  SET_PLAYER_ON_GROUND(SetPlayerOnGround.class),
+  SET_PLAYER_POSITION(SetPlayerPositionPacket.class),
+  SET_PLAYER_ROTATION(SetPlayerRotationPacket.class),
+  SET_PLAYER_POSITION_ROTATION(SetPlayerPositionRotationPacket.class),
+  CONFIRM_TELEPORTATION(ConfirmTeleportationPacket.class),
+  TRANSACTION(TransactionPacket.class),
+  ANIMATION(AnimationPacket.class);
+
+  private static final Map<Class<? extends SonarPacket>, SonarPacketType> BY_CLASS = new HashMap<>();
+
+  static {
+    for (final SonarPacketType type : values()) {
+      BY_CLASS.put(type.packetClass, type);
+    }
+  }
+
+  private final Class<? extends SonarPacket> packetClass;
+
+  static @NotNull SonarPacketType of(final @NotNull Class<? extends SonarPacket> packetClass) {
+    final SonarPacketType type = BY_CLASS.get(packetClass);
+    if (type == null) {
+      throw new IllegalArgumentException("No packet type for " + packetClass.getSimpleName());
+    }
+    return type;
+  }
+}
@@ -52,4 +52,10 @@ public void decode(final ByteBuf byteBuf, final ProtocolVersion protocolVersion)
     port = byteBuf.readUnsignedShort();
     intent = ProtocolUtil.readVarInt(byteBuf);
   }
+
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    // Protocol version, hostname of up to three bytes per character, port, and intent
+    return 5 + ProtocolUtil.varIntBytes(MAXIMUM_HOSTNAME_LENGTH * 3) + MAXIMUM_HOSTNAME_LENGTH * 3 + 2 + 5;
+  }
 }
@@ -19,14 +19,13 @@
 
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.DecoderException;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.common.protocol.SonarPacket;
+import xyz.jonesdev.sonar.common.util.ByteBufView;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
 
@@ -34,12 +33,14 @@
 
 @Getter
 @ToString
-@NoArgsConstructor
-@AllArgsConstructor
 public final class LoginStartPacket implements SonarPacket {
-  private String username;
+  private final ByteBufView username = new ByteBufView(); // only valid while the packet is being handled
   private @Nullable UUID uuid;
 
+  public @NotNull String getUsername() {
+    return username.toString();
+  }
+
   @Override
   public void encode(final ByteBuf byteBuf, final ProtocolVersion protocolVersion) throws Exception {
     throw new UnsupportedOperationException();
@@ -47,7 +48,8 @@ public void encode(final ByteBuf byteBuf, final ProtocolVersion protocolVersion)
 
   @Override
   public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protocolVersion) {
-    username = ProtocolUtil.readString(byteBuf, 16);
+    ProtocolUtil.readStringView(byteBuf, 16, username);
+    uuid = null;
 
     if (protocolVersion.greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_19)) {
       if (protocolVersion.lessThan(ProtocolVersion.MINECRAFT_1_19_3)) {
@@ -75,4 +77,11 @@ public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protoco
       }
     }
   }
+
+  @Override
+  public int expectedMaxLength(final @NotNull ProtocolVersion protocolVersion) {
+    // 1.19-1.19.2 clients may also send their public key and its signature
+    return protocolVersion.greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_19)
+      && protocolVersion.lessThan(ProtocolVersion.MINECRAFT_1_19_3) ? 1 << 16 : 66;
+  }
 }
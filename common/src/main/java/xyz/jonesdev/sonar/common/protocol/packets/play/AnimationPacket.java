@@ -52,6 +52,11 @@ public void decode(final @NotNull ByteBuf byteBuf, final @NotNull ProtocolVersio
     }
   }
 
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return 5;
+  }
+
   @Getter
   public enum LegacyAnimationType {
     NO_ANIMATION,
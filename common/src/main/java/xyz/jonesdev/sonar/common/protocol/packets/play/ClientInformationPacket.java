@@ -18,21 +18,18 @@
 package xyz.jonesdev.sonar.common.protocol.packets.play;
 
 import io.netty.buffer.ByteBuf;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.common.protocol.SonarPacket;
+import xyz.jonesdev.sonar.common.util.ByteBufView;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 
 @Getter
 @ToString
-@NoArgsConstructor
-@AllArgsConstructor
 public final class ClientInformationPacket implements SonarPacket {
-  private String locale;
+  private final ByteBufView locale = new ByteBufView(); // only valid while the packet is being handled
   private byte viewDistance;
   private int chatVisibility;
   private boolean chatColors;
@@ -50,7 +47,7 @@ public void encode(final ByteBuf byteBuf, final ProtocolVersion protocolVersion)
 
   @Override
   public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protocolVersion) throws Exception {
-    locale = ProtocolUtil.readString(byteBuf, 16);
+    ProtocolUtil.readStringView(byteBuf, 16, locale);
     viewDistance = byteBuf.readByte();
     chatVisibility = ProtocolUtil.readVarInt(byteBuf);
     chatColors = byteBuf.readBoolean();
@@ -42,4 +42,9 @@ public void encode(final ByteBuf byteBuf, final ProtocolVersion protocolVersion)
   public void decode(final ByteBuf byteBuf, final ProtocolVersion protocolVersion) throws Exception {
     teleportId = ProtocolUtil.readVarInt(byteBuf);
   }
+
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return 5;
+  }
 }
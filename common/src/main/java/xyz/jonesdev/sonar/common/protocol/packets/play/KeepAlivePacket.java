@@ -55,4 +55,9 @@ public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protoco
       id = byteBuf.readInt();
     }
   }
+
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return 8; // long since 1.12.2
+  }
 }
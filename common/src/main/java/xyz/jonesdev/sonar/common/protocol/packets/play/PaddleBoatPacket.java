@@ -43,4 +43,9 @@ public void decode(final @NotNull ByteBuf byteBuf, final @NotNull ProtocolVersio
     leftPaddle = byteBuf.readBoolean();
     rightPaddle = byteBuf.readBoolean();
   }
+
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return 2;
+  }
 }
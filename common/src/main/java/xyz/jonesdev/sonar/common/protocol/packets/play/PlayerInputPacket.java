@@ -60,4 +60,9 @@ public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protoco
       sneak = (flags & 0x02) != 0;
     }
   }
+
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return 10;
+  }
 }
@@ -23,14 +23,16 @@
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.common.protocol.SonarPacket;
+import xyz.jonesdev.sonar.common.util.ByteBufView;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
 
 @Getter
 @ToString
 public final class PluginMessagePacket implements SonarPacket {
-  private String channel;
-  private byte[] data;
+  // Both views point into the frame and are only valid while the packet is being handled
+  private final ByteBufView channel = new ByteBufView();
+  private final ByteBufView data = new ByteBufView();
 
   private static final int FORGE_MAX_ARRAY_LENGTH = Integer.MAX_VALUE & 0x1FFF9A;
 
@@ -41,7 +43,7 @@ public void encode(final ByteBuf byteBuf, final ProtocolVersion protocolVersion)
 
   @Override
   public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protocolVersion) throws Exception {
-    channel = ProtocolUtil.readString(byteBuf, 48);
+    ProtocolUtil.readStringView(byteBuf, 48, channel);
 
     final int length;
     if (protocolVersion.greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_8)) {
@@ -56,8 +58,11 @@ public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protoco
       }
     }
 
-    data = new byte[length];
-    byteBuf.readBytes(data);
+    if (!byteBuf.isReadable(length)) {
+      throw QuietDecoderException.INSTANCE;
+    }
+    data.set(byteBuf, byteBuf.readerIndex(), length);
+    byteBuf.skipBytes(length);
   }
 
   @Override
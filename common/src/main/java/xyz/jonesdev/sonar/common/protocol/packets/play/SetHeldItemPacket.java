@@ -47,4 +47,9 @@ public void encode(final @NotNull ByteBuf byteBuf, final @NotNull ProtocolVersio
   public void decode(final @NotNull ByteBuf byteBuf, final ProtocolVersion protocolVersion) {
     slot = byteBuf.readShort();
   }
+
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return 2;
+  }
 }
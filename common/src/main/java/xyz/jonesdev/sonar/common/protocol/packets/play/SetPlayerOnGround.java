@@ -48,4 +48,9 @@ public void decode(final @NotNull ByteBuf byteBuf, final ProtocolVersion protoco
       onGround = byteBuf.readBoolean();
     }
   }
+
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return 1;
+  }
 }
@@ -51,4 +51,9 @@ public void decode(final @NotNull ByteBuf byteBuf, final @NotNull ProtocolVersio
       onGround = byteBuf.readBoolean();
     }
   }
+
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return 9;
+  }
 }
@@ -18,26 +18,25 @@
 package xyz.jonesdev.sonar.common.protocol.packets.play;
 
 import io.netty.buffer.ByteBuf;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.common.protocol.SonarPacket;
+import xyz.jonesdev.sonar.common.util.ByteBufView;
 import xyz.jonesdev.sonar.common.util.ComponentHolder;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
 
 import java.util.UUID;
 
-@Data
+@Getter
 @NoArgsConstructor
-@AllArgsConstructor
 public final class SystemChatPacket implements SonarPacket {
   private static final int DIV_FLOOR = -Math.floorDiv(-20, 8);
 
   private ComponentHolder componentHolder;
-  private String message;
+  private final ByteBufView message = new ByteBufView(); // only valid while the packet is being handled
 
   public SystemChatPacket(final @NotNull ComponentHolder componentHolder) {
     this.componentHolder = componentHolder;
@@ -66,7 +65,7 @@ public void encode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protoco
 
   @Override
   public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protocolVersion) throws Exception {
-    message = ProtocolUtil.readString(byteBuf, 256);
+    ProtocolUtil.readStringView(byteBuf, 256, message);
 
     if (protocolVersion.greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_19)) {
       byteBuf.readLong(); // timestamp
@@ -125,4 +124,9 @@ public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protoco
       }
     }
   }
+
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return Short.MAX_VALUE; // signed messages can carry several signatures
+  }
 }
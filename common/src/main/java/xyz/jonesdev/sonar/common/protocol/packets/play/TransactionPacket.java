@@ -48,6 +48,11 @@ public void decode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protoco
     }
   }
 
+  @Override
+  public int expectedMaxLength(final ProtocolVersion protocolVersion) {
+    return 4;
+  }
+
   @Override
   public void encode(final ByteBuf byteBuf, final @NotNull ProtocolVersion protocolVersion) throws Exception {
     if (protocolVersion.lessThan(ProtocolVersion.MINECRAFT_1_17)) {
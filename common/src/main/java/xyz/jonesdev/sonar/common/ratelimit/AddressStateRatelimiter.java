@@ -17,36 +17,33 @@
 
 package xyz.jonesdev.sonar.common.ratelimit;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.Ticker;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.antibot.AddressStateTable;
 import xyz.jonesdev.sonar.api.antibot.ratelimit.Ratelimiter;
 
 import java.net.InetAddress;
 import java.time.Duration;
 
 // Idea taken from Velocity
-@Setter
 @RequiredArgsConstructor
-public final class CaffeineCacheRatelimiter implements Ratelimiter<InetAddress> {
-  private long timeout;
-  private Cache<InetAddress, Long> expiringCache;
+public final class AddressStateRatelimiter implements Ratelimiter<InetAddress> {
+  // The rate-limit deadlines are stored in the per-IP state table
+  private final AddressStateTable addressStateTable;
+  private final long timeout;
 
-  public CaffeineCacheRatelimiter(final @NotNull Duration duration) {
-    this.timeout = duration.toNanos();
-    this.expiringCache = Caffeine.newBuilder()
-      .ticker(Ticker.systemTicker())
-      .expireAfterWrite(duration)
-      .build();
+  public AddressStateRatelimiter(final @NotNull AddressStateTable addressStateTable,
+                                 final @NotNull Duration duration) {
+    this(addressStateTable, duration.toNanos());
   }
 
   @Override
   public boolean attempt(final @NotNull InetAddress inetAddress) {
-    final long expectedNewTimestamp = System.nanoTime() + timeout;
-    final long last = expiringCache.get(inetAddress, result -> expectedNewTimestamp);
-    return expectedNewTimestamp == last;
+    return addressStateTable.tryStartRatelimit(inetAddress, timeout);
+  }
+
+  @Override
+  public boolean isRatelimited(final @NotNull InetAddress inetAddress) {
+    return addressStateTable.isRatelimited(inetAddress);
   }
 }
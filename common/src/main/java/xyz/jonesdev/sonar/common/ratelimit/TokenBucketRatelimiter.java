@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.ratelimit;
+
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.antibot.ratelimit.Ratelimiter;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rate-limiter that keeps a token bucket for every IP address and another one for its subnet.
+ * <br>
+ * Every IP address may reconnect a few times in a row and regains one attempt per reconnect delay,
+ * while all addresses of a subnet share a larger bucket. This way, a single player can reconnect
+ * without waiting, but a subnet that floods the server from many addresses at once is throttled as a whole.
+ * IPv4 addresses are grouped by /24; IPv6 addresses are bucketed by /64 (usually a single host) and grouped by /48.
+ * <br>
+ * The buckets live in fixed-size tables of longs and are only updated using CAS, so attempts never block.
+ * Once a table is full, idle buckets are reused first, then the buckets that weren't used for the longest time.
+ */
+public final class TokenBucketRatelimiter implements Ratelimiter<InetAddress> {
+  // Number of attempts an IP address can make in a row
+  private static final int BURST = Integer.getInteger("sonar.ratelimit.burst", 3);
+  // Number of attempts all addresses of a subnet can make in a row
+  private static final int SUBNET_BURST = Integer.getInteger("sonar.ratelimit.subnet-burst", 24);
+  // Number of attempts a subnet regains per reconnect delay
+  private static final int SUBNET_REFILL = Integer.getInteger("sonar.ratelimit.subnet-refill", 6);
+  // Number of buckets per table (rounded up to the next power of two)
+  private static final int TABLE_SIZE = Integer.getInteger("sonar.ratelimit.table-size", 1 << 16);
+  private static final int MAX_PROBES = 8;
+
+  // Layout of a bucket: 40 bits timestamp of the last update (millis), 24 bits tokens (fixed-point)
+  private static final int TIME_SHIFT = 24;
+  private static final long TOKEN_MASK = (1L << TIME_SHIFT) - 1;
+  private static final long ONE_TOKEN = 1L << 10;
+  private static final long START = System.nanoTime();
+
+  private final Level addresses, subnets;
+
+  public TokenBucketRatelimiter(final @NotNull Duration reconnectDelay) {
+    final long period = Math.max(reconnectDelay.toMillis(), 1L);
+    this.addresses = new Level(BURST, 1, period);
+    this.subnets = new Level(SUBNET_BURST, SUBNET_REFILL, period);
+  }
+
+  @Override
+  public boolean attempt(final @NotNull InetAddress inetAddress) {
+    final long now = now();
+    final long address = addressKey(inetAddress);
+    if (!addresses.acquire(address, now)) {
+      return false;
+    }
+    if (!subnets.acquire(subnetKey(inetAddress, address), now)) {
+      // Don't punish the address for an attempt that has been denied anyway
+      addresses.release(address, now);
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isRatelimited(final @NotNull InetAddress inetAddress) {
+    final long now = now();
+    final long address = addressKey(inetAddress);
+    return addresses.isEmpty(address, now) || subnets.isEmpty(subnetKey(inetAddress, address), now);
+  }
+
+  private static long now() {
+    // Never return 0, since an empty bucket state means that the bucket is full
+    return (System.nanoTime() - START) / 1_000_000L + 1L;
+  }
+
+  private static long addressKey(final @NotNull InetAddress inetAddress) {
+    if (inetAddress instanceof Inet4Address) {
+      // The hash code of an IPv4 address is the address itself
+      return 1L << 32 | (inetAddress.hashCode() & 0xFFFFFFFFL);
+    }
+    // Only use the /64 of IPv6 addresses
+    final byte[] address = inetAddress.getAddress();
+    long key = 0L;
+    for (int i = 0; i < 8; i++) {
+      key = (key << 8) | (address[i] & 0xFFL);
+    }
+    return key == 0L ? 1L : key;
+  }
+
+  private static long subnetKey(final @NotNull InetAddress inetAddress, final long addressKey) {
+    if (inetAddress instanceof Inet4Address) {
+      return addressKey & ~0xFFL;
+    }
+    final long key = addressKey & 0xFFFFFFFFFFFF0000L;
+    return key == 0L ? 1L : key;
+  }
+
+  private static final class Level {
+    // Pairs of keys and bucket states; 0 is never used as a key
+    private final AtomicLongArray table;
+    private final int mask;
+    private final long capacity, refill, period, fillTime;
+
+    private Level(final int burst, final int refill, final long period) {
+      final int size = Integer.highestOneBit(Math.max(TABLE_SIZE, MAX_PROBES) - 1) << 1;
+      this.table = new AtomicLongArray(size << 1);
+      this.mask = size - 1;
+      this.capacity = Math.min(Math.max(burst, 1) * ONE_TOKEN, TOKEN_MASK);
+      this.refill = Math.max(refill, 1) * ONE_TOKEN;
+      this.period = period;
+      this.fillTime = (capacity * period + this.refill - 1) / this.refill;
+    }
+
+    private long tokens(final long state, final long now) {
+      // Buckets start full
+      if (state == 0L) return capacity;
+      final long elapsed = now - (state >>> TIME_SHIFT);
+      final long tokens = state & TOKEN_MASK;
+      if (elapsed <= 0L) return tokens;
+      if (elapsed >= fillTime) return capacity;
+      return Math.min(capacity, tokens + elapsed * refill / period);
+    }
+
+    boolean acquire(final long key, final long now) {
+      final int slot = findOrInsert(key, now);
+      for (;;) {
+        final long state = table.get(slot);
+        final long tokens = tokens(state, now);
+        if (tokens < ONE_TOKEN) {
+          return false;
+        }
+        if (table.compareAndSet(slot, state, (now << TIME_SHIFT) | (tokens - ONE_TOKEN))) {
+          return true;
+        }
+      }
+    }
+
+    void release(final long key, final long now) {
+      final int slot = find(key);
+      if (slot == -1) return;
+      for (;;) {
+        final long state = table.get(slot);
+        final long tokens = Math.min(capacity, tokens(state, now) + ONE_TOKEN);
+        if (table.compareAndSet(slot, state, (now << TIME_SHIFT) | tokens)) {
+          return;
+        }
+      }
+    }
+
+    boolean isEmpty(final long key, final long now) {
+      final int slot = find(key);
+      return slot != -1 && tokens(table.get(slot), now) < ONE_TOKEN;
+    }
+
+    /**
+     * @return Index of the bucket state of the given key, or -1 if there is no bucket for the key
+     */
+    private int find(final long key) {
+      final int start = mix(key);
+      for (int probe = 0; probe < MAX_PROBES; probe++) {
+        final int index = ((start + probe) & mask) << 1;
+        final long current = table.get(index);
+        if (current == key) return index + 1;
+        if (current == 0L) return -1;
+      }
+      return -1;
+    }
+
+    private int findOrInsert(final long key, final long now) {
+      final int start = mix(key);
+      int victim = -1;
+      long victimTime = Long.MAX_VALUE;
+      boolean victimFull = false;
+      // The key might sit further down the probe sequence, so we have to look at every slot
+      // up to the first empty one before taking over another bucket
+      for (int probe = 0; probe < MAX_PROBES; probe++) {
+        final int index = ((start + probe) & mask) << 1;
+        long current = table.get(index);
+        if (current == 0L) {
+          if (table.compareAndSet(index, 0L, key)) {
+            return index + 1;
+          }
+          current = table.get(index);
+        }
+        if (current == key) return index + 1;
+        if (victimFull) continue;
+
+        final long state = table.get(index + 1);
+        // Full buckets hold no state, so they are preferred over the least recently used one
+        if (tokens(state, now) >= capacity) {
+          victim = index;
+          victimFull = true;
+          continue;
+        }
+        final long time = state >>> TIME_SHIFT;
+        if (time < victimTime) {
+          victim = index;
+          victimTime = time;
+        }
+      }
+
+      // Take over the bucket that hasn't been used for the longest time.
+      // If another thread takes it over at the same time, both keys simply share the bucket.
+      final long previous = table.get(victim);
+      if (table.compareAndSet(victim, previous, key)) {
+        table.set(victim + 1, 0L);
+      }
+      return victim + 1;
+    }
+
+    private int mix(final long key) {
+      final long hash = key * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+  }
+}
@@ -20,8 +20,10 @@
 import lombok.experimental.UtilityClass;
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.antibot.LoginQueue;
 import xyz.jonesdev.sonar.api.config.SonarConfiguration;
 import xyz.jonesdev.sonar.api.update.UpdateChecker;
+import xyz.jonesdev.sonar.common.statistics.EventLoopMonitor;
 import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
 
 import java.sql.SQLException;
@@ -36,6 +38,9 @@ public final class ScheduledServiceManager {
   private final ScheduledExecutorService LOGIN_QUEUE = createScheduledExecutor("sonar-queue-thread");
   private final ScheduledExecutorService STATISTICS = createScheduledExecutor("sonar-statistics-thread");
   private final ScheduledExecutorService UPDATE_NOTIFIER = createScheduledExecutor("sonar-update-notifier");
+  private final ScheduledExecutorService SNAPSHOT = createScheduledExecutor("sonar-snapshot-thread");
+  // Interval in which the blacklist and the attack state are saved
+  private final long SNAPSHOT_INTERVAL = Long.getLong("sonar.snapshot.interval-seconds", 60L);
 
   private @NotNull ScheduledExecutorService createScheduledExecutor(final String threadName) {
     return Executors.newSingleThreadScheduledExecutor(runnable -> {
@@ -60,9 +65,11 @@ public void start() {
     }
 
     VERBOSE.scheduleAtFixedRate(() -> {
-      // Make sure to clean up the cached statistics since we don't want to display wrong values
-      GlobalSonarStatistics.cleanUpCaches();
-      Sonar.get0().getAntiBot().getBlacklist().cleanUp();
+      // Expire blacklist scores and rate-limits and remove unused entries
+      Sonar.get0().getAntiBot().getAddressStateTable().sweep();
+      Sonar.get0().getAntiBot().getSubnetBlacklist().sweep();
+      // Measure the scheduling delay of the event loops
+      EventLoopMonitor.probe();
       // Update the attack tracker
       Sonar.get0().getAttackTracker().checkIfUnderAttack();
       // Publish the action bar notifications
@@ -70,11 +77,14 @@ public void start() {
     }, 0L, 250L, TimeUnit.MILLISECONDS);
 
     LOGIN_QUEUE.scheduleAtFixedRate(() -> Sonar.get0().getAntiBot().getQueue().poll(),
-      1L, 1L, TimeUnit.SECONDS);
+      0L, 1000L / LoginQueue.TICKS_PER_SECOND, TimeUnit.MILLISECONDS);
 
     STATISTICS.scheduleAtFixedRate(GlobalSonarStatistics::hitEverySecond,
       0L, 1L, TimeUnit.SECONDS);
 
+    SNAPSHOT.scheduleWithFixedDelay(StateSnapshot::save,
+      SNAPSHOT_INTERVAL, SNAPSHOT_INTERVAL, TimeUnit.SECONDS);
+
     // This config setting only updates when the server is restarted
     if (Sonar.get0().getConfig().getGeneralConfig().getBoolean("general.check-for-updates")) {
       UPDATE_NOTIFIER.scheduleAtFixedRate(UpdateChecker::checkForUpdates,
@@ -88,5 +98,6 @@ public void stop() {
     LOGIN_QUEUE.shutdown();
     STATISTICS.shutdown();
     UPDATE_NOTIFIER.shutdown();
+    SNAPSHOT.shutdown();
   }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.service;
+
+import lombok.experimental.UtilityClass;
+import xyz.jonesdev.sonar.api.Sonar;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary snapshot of the blacklist, the reconnect delays, and the current attack.
+ * It is written periodically and on shutdown, so a restarted proxy is protected right away.
+ * All deadlines are stored as remaining times and shortened by the time that passed until the restart.
+ */
+@UtilityClass
+public final class StateSnapshot {
+  private final int MAGIC = 0x534E5253; // SNRS
+  private final int VERSION = 1;
+  private final String FILE_NAME = "state.bin";
+  // Make sure the snapshot is only restored once and not every time the configuration is reloaded
+  private boolean restored;
+
+  private Path path() {
+    return new File(Sonar.get0().getConfig().getPluginFolder(), FILE_NAME).toPath();
+  }
+
+  public synchronized void save() {
+    final Path path = path();
+    final Path temporary = path.resolveSibling(FILE_NAME + ".tmp");
+    try {
+      try (final DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(System.currentTimeMillis());
+        Sonar.get0().getAntiBot().getAddressStateTable().writeSnapshot(output);
+        Sonar.get0().getAntiBot().getSubnetBlacklist().writeSnapshot(output);
+        Sonar.get0().getAttackTracker().writeSnapshot(output);
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException exception) {
+      Sonar.get0().getLogger().error("Could not save the blacklist: {}", exception);
+    }
+  }
+
+  public synchronized void restore() {
+    if (restored) return;
+    restored = true;
+
+    final Path path = path();
+    if (!Files.exists(path)) return;
+    try (final DataInputStream input = new DataInputStream(
+      new BufferedInputStream(Files.newInputStream(path)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        Sonar.get0().getLogger().warn("Ignoring the saved blacklist since it has an unknown format.");
+        return;
+      }
+      final long elapsedNanos = TimeUnit.MILLISECONDS.toNanos(
+        Math.max(System.currentTimeMillis() - input.readLong(), 0L));
+      Sonar.get0().getAntiBot().getAddressStateTable().readSnapshot(input, elapsedNanos);
+      Sonar.get0().getAntiBot().getSubnetBlacklist().readSnapshot(input, elapsedNanos);
+      Sonar.get0().getAttackTracker().readSnapshot(input);
+      Sonar.get0().getLogger().info("Restored {} blacklisted IP addresses and {} blacklisted ranges.",
+        Sonar.get0().getAntiBot().getAddressStateTable().getBlacklistSize(),
+        Sonar.get0().getAntiBot().getSubnetBlacklist().getSize());
+    } catch (IOException exception) {
+      Sonar.get0().getLogger().error("Could not restore the blacklist: {}", exception);
+    }
+  }
+}
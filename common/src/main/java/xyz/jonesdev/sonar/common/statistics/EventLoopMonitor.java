@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.statistics;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures whether the event loops of the proxy keep up.
+ * <br>
+ * Every event loop that handles an injected channel is probed regularly: a task is submitted to the
+ * event loop and the time until it runs (scheduling delay) is recorded, together with the number of
+ * tasks that are waiting in the event loop. Only one probe per event loop is in flight at a time,
+ * so a stuck event loop doesn't pile up probes; instead, the age of its pending probe counts as lag.
+ */
+@UtilityClass
+public final class EventLoopMonitor {
+  // Number of probes after which the statistics of the last window are published
+  private final int PROBES_PER_WINDOW = Integer.getInteger("sonar.event-loop-monitor.window", 20);
+
+  private final Map<EventLoop, Probe> PROBES = new ConcurrentHashMap<>();
+  private final Log2Histogram LAG = new Log2Histogram();
+  private final Log2Histogram PENDING_TASKS = new Log2Histogram();
+  // Statistics of the last completed window (only written by the monitor thread)
+  private final Log2Histogram LAST_LAG = new Log2Histogram();
+  private final Log2Histogram LAST_PENDING_TASKS = new Log2Histogram();
+  private volatile long lastLagP50, lastLagP99, lastLagMax, lastPendingTasksMax;
+  private int probes;
+
+  private static final class Probe {
+    // Time at which the pending probe has been submitted, or 0 if no probe is pending
+    private final AtomicLong submitted = new AtomicLong();
+  }
+
+  /**
+   * Starts monitoring the event loop of a new channel
+   */
+  public void register(final @NotNull EventLoop eventLoop) {
+    // Most channels share an event loop that is already known, so avoid locking in that case
+    if (!PROBES.containsKey(eventLoop)) {
+      PROBES.putIfAbsent(eventLoop, new Probe());
+    }
+  }
+
+  /**
+   * Submits a probe to every known event loop and publishes the statistics once a window is complete;
+   * always called by the same thread
+   */
+  @ApiStatus.Internal
+  public void probe() {
+    final long now = System.nanoTime();
+    for (final Map.Entry<EventLoop, Probe> entry : PROBES.entrySet()) {
+      final EventLoop eventLoop = entry.getKey();
+      final Probe probe = entry.getValue();
+      if (eventLoop.isShuttingDown()) {
+        PROBES.remove(eventLoop);
+        continue;
+      }
+      final long submitted = probe.submitted.get();
+      if (submitted != 0L) {
+        // The last probe hasn't run yet, so the event loop is lagging behind at least this much
+        LAG.record(now - submitted);
+        continue;
+      }
+      if (eventLoop instanceof SingleThreadEventExecutor) {
+        PENDING_TASKS.record(((SingleThreadEventExecutor) eventLoop).pendingTasks());
+      }
+      probe.submitted.set(now);
+      try {
+        eventLoop.execute(() -> {
+          LAG.record(System.nanoTime() - now);
+          probe.submitted.set(0L);
+        });
+      } catch (RejectedExecutionException exception) {
+        PROBES.remove(eventLoop);
+      }
+    }
+
+    if (++probes >= PROBES_PER_WINDOW) {
+      probes = 0;
+      LAG.drainTo(LAST_LAG);
+      PENDING_TASKS.drainTo(LAST_PENDING_TASKS);
+      lastLagP50 = LAST_LAG.percentile(0.5D);
+      lastLagP99 = LAST_LAG.percentile(0.99D);
+      lastLagMax = LAST_LAG.max();
+      lastPendingTasksMax = LAST_PENDING_TASKS.max();
+    }
+  }
+
+  /**
+   * @return Median scheduling delay of all event loops during the last window in milliseconds
+   */
+  public double getLagMedian() {
+    return lastLagP50 / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+  }
+
+  /**
+   * @return 99th percentile of the scheduling delay of all event loops during the last window in milliseconds
+   */
+  public double getLag99thPercentile() {
+    return lastLagP99 / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+  }
+
+  /**
+   * @return Highest scheduling delay of all event loops during the last window in milliseconds
+   */
+  public double getLagMax() {
+    return lastLagMax / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+  }
+
+  /**
+   * @return Highest number of pending tasks of a single event loop during the last window
+   */
+  public long getPendingTasksMax() {
+    return lastPendingTasksMax;
+  }
+}
@@ -17,29 +17,21 @@
 
 package xyz.jonesdev.sonar.common.statistics;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.Ticker;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.antibot.AdmissionController;
+import xyz.jonesdev.sonar.api.antibot.FailReason;
 import xyz.jonesdev.sonar.api.profiler.SimpleProcessProfiler;
 import xyz.jonesdev.sonar.api.statistics.SonarStatistics;
 
-import java.time.Duration;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class GlobalSonarStatistics implements SonarStatistics {
-  private static final Cache<Integer, Byte> LOGINS_PER_SECOND = Caffeine.newBuilder()
-    .expireAfterWrite(Duration.ofSeconds(1))
-    .ticker(Ticker.systemTicker())
-    .build();
-
-  private static final Cache<Integer, Byte> CONNECTIONS_PER_SECOND = Caffeine.newBuilder()
-    .expireAfterWrite(Duration.ofSeconds(1))
-    .ticker(Ticker.systemTicker())
-    .build();
-
-  private static final AtomicInteger ACTION_COUNTER = new AtomicInteger(Integer.MIN_VALUE);
+  private static final SlidingWindowCounter CONNECTIONS = new SlidingWindowCounter();
+  private static final SlidingWindowCounter LOGINS = new SlidingWindowCounter();
+  public static final SlidingWindowCounter INCOMING_TRAFFIC = new SlidingWindowCounter();
+  public static final SlidingWindowCounter OUTGOING_TRAFFIC = new SlidingWindowCounter();
 
   /**
    * Helper methods that make it easier to count new statistics
@@ -47,70 +39,82 @@ public final class GlobalSonarStatistics implements SonarStatistics {
 
   @ApiStatus.Internal
   public static void countConnection() {
-    CONNECTIONS_PER_SECOND.put(ACTION_COUNTER.getAndIncrement(), (byte) 0);
+    CONNECTIONS.increment();
   }
 
   @ApiStatus.Internal
   public static void countLogin() {
-    LOGINS_PER_SECOND.put(ACTION_COUNTER.getAndIncrement(), (byte) 0);
-    totalJoinedPlayers++;
+    LOGINS.increment();
+  }
+
+  @ApiStatus.Internal
+  public static void countFailedVerification(final @NotNull FailReason reason) {
+    TOTAL_FAILED_VERIFICATIONS.increment();
+    FAILED_VERIFICATIONS_BY_REASON[reason.ordinal()].increment();
   }
 
   // Cache all per-session statistics
-  private static int totalJoinedPlayers;
-  public static int totalSuccessfulVerifications;
-  public static int totalFailedVerifications;
-  public static int totalAttemptedVerifications;
-  public static long totalBlacklistedPlayers;
-  public static long totalIncomingTraffic;
-  public static long totalOutgoingTraffic;
-  public static long perSecondIncomingTraffic;
-  public static long perSecondOutgoingTraffic;
-  private static String perSecondIncomingTrafficFormatted;
-  private static String perSecondOutgoingTrafficFormatted;
-
-  public static void cleanUpCaches() {
-    LOGINS_PER_SECOND.cleanUp();
-    CONNECTIONS_PER_SECOND.cleanUp();
+  public static final LongAdder TOTAL_SUCCESSFUL_VERIFICATIONS = new LongAdder();
+  public static final LongAdder TOTAL_FAILED_VERIFICATIONS = new LongAdder();
+  public static final LongAdder TOTAL_ATTEMPTED_VERIFICATIONS = new LongAdder();
+  public static final LongAdder TOTAL_BLACKLISTED_PLAYERS = new LongAdder();
+  private static final LongAdder[] FAILED_VERIFICATIONS_BY_REASON = new LongAdder[FailReason.values().length];
+
+  static {
+    for (int i = 0; i < FAILED_VERIFICATIONS_BY_REASON.length; i++) {
+      FAILED_VERIFICATIONS_BY_REASON[i] = new LongAdder();
+    }
   }
+  private static volatile String perSecondIncomingTrafficFormatted;
+  private static volatile String perSecondOutgoingTrafficFormatted;
 
   public static void hitEverySecond() {
-    totalIncomingTraffic += perSecondIncomingTraffic;
-    totalOutgoingTraffic += perSecondOutgoingTraffic;
-    perSecondIncomingTrafficFormatted = SimpleProcessProfiler.formatMemory(perSecondIncomingTraffic);
-    perSecondOutgoingTrafficFormatted = SimpleProcessProfiler.formatMemory(perSecondOutgoingTraffic);
-    perSecondIncomingTraffic = 0L;
-    perSecondOutgoingTraffic = 0L;
+    CONNECTIONS.tick();
+    LOGINS.tick();
+    INCOMING_TRAFFIC.tick();
+    OUTGOING_TRAFFIC.tick();
+    perSecondIncomingTrafficFormatted = SimpleProcessProfiler.formatMemory(INCOMING_TRAFFIC.getWindow(1));
+    perSecondOutgoingTrafficFormatted = SimpleProcessProfiler.formatMemory(OUTGOING_TRAFFIC.getWindow(1));
   }
 
   @Override
   public long getConnectionsPerSecond() {
-    return CONNECTIONS_PER_SECOND.estimatedSize();
+    return CONNECTIONS.getWindow(1);
+  }
+
+  @Override
+  public long getConnections(final int seconds) {
+    return CONNECTIONS.getWindow(seconds);
   }
 
   @Override
   public long getLoginsPerSecond() {
-    return LOGINS_PER_SECOND.estimatedSize();
+    return LOGINS.getWindow(1);
+  }
+
+  @Override
+  public long getLogins(final int seconds) {
+    return LOGINS.getWindow(seconds);
   }
 
   @Override
   public long getCurrentIncomingBandwidth() {
-    return perSecondIncomingTraffic;
+    return INCOMING_TRAFFIC.getWindow(1);
   }
 
   @Override
   public long getCurrentOutgoingBandwidth() {
-    return perSecondOutgoingTraffic;
+    return OUTGOING_TRAFFIC.getWindow(1);
   }
 
   @Override
   public long getTotalIncomingBandwidth() {
-    return totalIncomingTraffic;
+    return INCOMING_TRAFFIC.getTotal();
   }
 
   @Override
   public long getTotalOutgoingBandwidth() {
-    return totalOutgoingTraffic;
+    return OUTGOING_TRAFFIC.getTotal();
   }
 
   @Override
@@ -125,41 +129,73 @@ public String getPerSecondOutgoingBandwidthFormatted() {
 
   @Override
   public int getTotalPlayersJoined() {
-    return totalJoinedPlayers;
+    return (int) LOGINS.getTotal();
   }
 
   @Override
   public int getTotalPlayersVerified() {
-    return Sonar.get0().getVerifiedPlayerController().getCache().size();
+    return (int) Sonar.get0().getVerifiedPlayerController().getSize();
   }
 
   @Override
   public int getTotalSuccessfulVerifications() {
-    return totalSuccessfulVerifications;
+    return TOTAL_SUCCESSFUL_VERIFICATIONS.intValue();
   }
 
   @Override
   public int getTotalFailedVerifications() {
-    return totalFailedVerifications;
+    return TOTAL_FAILED_VERIFICATIONS.intValue();
+  }
+
+  @Override
+  public long getFailedVerifications(final @NotNull FailReason reason) {
+    return FAILED_VERIFICATIONS_BY_REASON[reason.ordinal()].sum();
   }
 
   @Override
   public long getCurrentAttemptedVerifications() {
-    return Sonar.get0().getAntiBot().getConnected().size();
+    return Sonar.get0().getAntiBot().getAddressStateTable().getVerifyingCount();
   }
 
   @Override
   public int getTotalAttemptedVerifications() {
-    return totalAttemptedVerifications;
+    return TOTAL_ATTEMPTED_VERIFICATIONS.intValue();
   }
 
   @Override
   public long getCurrentBlacklistSize() {
-    return Sonar.get0().getAntiBot().getBlacklist().estimatedSize();
+    return Sonar.get0().getAntiBot().getAddressStateTable().getBlacklistSize();
   }
 
   @Override
   public long getTotalBlacklistSize() {
-    return totalBlacklistedPlayers;
+    return TOTAL_BLACKLISTED_PLAYERS.sum();
+  }
+
+  @Override
+  public double getEventLoopLag() {
+    return EventLoopMonitor.getLag99thPercentile();
+  }
+
+  @Override
+  public double getMaxEventLoopLag() {
+    return EventLoopMonitor.getLagMax();
+  }
+
+  @Override
+  public long getPendingEventLoopTasks() {
+    return EventLoopMonitor.getPendingTasksMax();
+  }
+
+  @Override
+  public double getAdmissionRate() {
+    final double rate = Sonar.get0().getAntiBot().getQueue().getAdmissionController().getRate();
+    // The queue hasn't made a decision yet, so it still uses the configured rate
+    return rate < 0D ? Sonar.get0().getConfig().getQueue().getMaxQueuePolls() : rate;
+  }
+
+  @Override
+  public long getAdmissionDecisions(final @NotNull AdmissionController.Reason reason) {
+    return Sonar.get0().getAntiBot().getQueue().getAdmissionController().getDecisions(reason);
   }
 }
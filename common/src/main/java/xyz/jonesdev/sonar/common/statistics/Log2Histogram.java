@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.statistics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram with one bucket per power of two, each split into eight linear sub-buckets.
+ * Values are therefore accurate to within 12.5%, which is plenty for lag and queue sizes.
+ */
+public final class Log2Histogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // Values below SUB_BUCKETS are counted exactly; every larger power of two gets its own sub-buckets
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  public void record(final long value) {
+    counts.incrementAndGet(bucket(Math.max(value, 0L)));
+  }
+
+  /**
+   * @return Given percentile (0 to 1) of all recorded values, interpolated within its bucket,
+   * or 0 if nothing was recorded
+   */
+  public long percentile(final double percentile) {
+    long total = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += counts.get(i);
+    }
+    if (total == 0L) return 0L;
+    final long rank = Math.max((long) Math.ceil(total * percentile), 1L);
+    long seen = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      final long count = counts.get(i);
+      if (seen + count >= rank) {
+        // Assume that the values are spread evenly across the bucket
+        final long lowerBound = lowerBound(i);
+        return lowerBound + (long) ((upperBound(i) - lowerBound) * ((rank - seen) / (double) count));
+      }
+      seen += count;
+    }
+    return max();
+  }
+
+  /**
+   * @return Upper bound of the highest recorded value, or 0 if nothing was recorded
+   */
+  public long max() {
+    for (int i = BUCKETS - 1; i >= 0; i--) {
+      if (counts.get(i) > 0L) {
+        return upperBound(i);
+      }
+    }
+    return 0L;
+  }
+
+  /**
+   * Replaces the values of the given histogram with the values of this one and resets this one
+   */
+  public void drainTo(final Log2Histogram histogram) {
+    for (int i = 0; i < BUCKETS; i++) {
+      histogram.counts.set(i, counts.getAndSet(i, 0L));
+    }
+  }
+
+  private static int bucket(final long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long lowerBound(final int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  private static long upperBound(final int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    return lowerBound(bucket) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
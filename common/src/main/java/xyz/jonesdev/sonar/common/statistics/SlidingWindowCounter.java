@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.statistics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counter with a ring buffer of per-second buckets.
+ * Any thread can count events, but {@link #tick()} must only be called by a single thread once per second.
+ */
+public final class SlidingWindowCounter {
+  public static final int MAXIMUM_WINDOW_SECONDS = 60;
+
+  private final LongAdder total = new LongAdder();
+  // Completed seconds; only written by the ticking thread and published through the volatile tick counter
+  private final long[] buckets = new long[MAXIMUM_WINDOW_SECONDS];
+  private long lastTotal;
+  private volatile int ticks;
+
+  public void increment() {
+    total.increment();
+  }
+
+  public void add(final long amount) {
+    total.add(amount);
+  }
+
+  /**
+   * @return Number of events counted since startup
+   */
+  public long getTotal() {
+    return total.sum();
+  }
+
+  /**
+   * @param seconds Size of the window (between 1 and {@link #MAXIMUM_WINDOW_SECONDS})
+   * @return Number of events counted during the last completed seconds
+   */
+  public long getWindow(final int seconds) {
+    final int currentTicks = ticks;
+    final int window = Math.min(Math.min(seconds, MAXIMUM_WINDOW_SECONDS), currentTicks);
+    long sum = 0L;
+    for (int i = 1; i <= window; i++) {
+      sum += buckets[(currentTicks - i) % MAXIMUM_WINDOW_SECONDS];
+    }
+    return sum;
+  }
+
+  /**
+   * Completes the current second. We never reset the striped counter itself, since
+   * resetting a {@link LongAdder} while other threads update it can lose increments.
+   */
+  public void tick() {
+    final long currentTotal = total.sum();
+    buckets[ticks % MAXIMUM_WINDOW_SECONDS] = currentTotal - lastTotal;
+    lastTotal = currentTotal;
+    ticks++;
+  }
+}
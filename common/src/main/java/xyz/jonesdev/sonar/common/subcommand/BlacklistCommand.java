@@ -20,11 +20,18 @@
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.antibot.AddressStateTable;
+import xyz.jonesdev.sonar.api.antibot.SubnetBlacklist;
 import xyz.jonesdev.sonar.api.command.InvocationSource;
 import xyz.jonesdev.sonar.api.command.subcommand.Subcommand;
 import xyz.jonesdev.sonar.api.command.subcommand.SubcommandInfo;
 
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
 @SubcommandInfo(
   name = "blacklist",
   arguments = {"add", "remove", "clear", "size"}
@@ -33,18 +40,28 @@ public final class BlacklistCommand extends Subcommand {
 
   @Override
   protected void execute(final @NotNull InvocationSource source, final String @NotNull [] args) {
+    final AddressStateTable addressStateTable = Sonar.get0().getAntiBot().getAddressStateTable();
+    final SubnetBlacklist subnetBlacklist = Sonar.get0().getAntiBot().getSubnetBlacklist();
+
     switch (args[1].toLowerCase()) {
       case "add": {
         if (args.length <= 2) {
-          incorrectUsage(source, "blacklist add <IP address>");
+          incorrectUsage(source, "blacklist add <IP address or CIDR range>");
           return;
         }
 
-        final String rawAddress = validateIP(source, args[2]);
-        // Make sure the given IP address is valid
-        if (rawAddress == null) return;
+        final String rawAddress = args[2];
+        final InetAddress inetAddress = validateAddress(source, rawAddress);
+        // Make sure the given IP address or range is valid
+        if (inetAddress == null) return;
+        final int prefixLength = prefixLength(rawAddress);
 
-        if (Sonar.get0().getAntiBot().getBlacklist().asMap().containsKey(rawAddress)) {
+        final long expiryNanos = TimeUnit.MILLISECONDS.toNanos(Sonar.get0().getAntiBot().getBlacklistTime());
+        final boolean added = prefixLength < 0
+          ? addressStateTable.getBlacklistScore(inetAddress) <= 0
+          : subnetBlacklist.add(inetAddress, prefixLength, expiryNanos);
+
+        if (!added) {
           source.sendMessage(MiniMessage.miniMessage().deserialize(
             Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.ip-duplicate"),
             Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
@@ -52,7 +69,9 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
           return;
         }
 
-        Sonar.get0().getAntiBot().getBlacklist().put(rawAddress, 1337 /* arbitrarily high number */);
+        if (prefixLength < 0) {
+          addressStateTable.setBlacklistScore(inetAddress, 1337 /* arbitrarily high number */, expiryNanos);
+        }
         source.sendMessage(MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.add"),
           Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
@@ -62,22 +81,29 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
 
       case "remove": {
         if (args.length <= 2) {
-          incorrectUsage(source, "blacklist remove <IP address>");
+          incorrectUsage(source, "blacklist remove <IP address or CIDR range>");
           return;
         }
 
-        final String rawAddress = validateIP(source, args[2]);
-        // Make sure the given IP address is valid
-        if (rawAddress == null) return;
+        final String rawAddress = args[2];
+        final InetAddress inetAddress = validateAddress(source, rawAddress);
+        // Make sure the given IP address or range is valid
+        if (inetAddress == null) return;
+        final int prefixLength = prefixLength(rawAddress);
 
-        if (!Sonar.get0().getAntiBot().getBlacklist().asMap().containsKey(rawAddress)) {
+        final boolean removed = prefixLength < 0
+          // Single IP addresses might also have been added as a range with the full prefix length
+          ? addressStateTable.removeBlacklistScore(inetAddress)
+          | subnetBlacklist.remove(inetAddress, inetAddress instanceof Inet4Address ? 32 : 128)
+          : subnetBlacklist.remove(inetAddress, prefixLength);
+
+        if (!removed) {
           source.sendMessage(MiniMessage.miniMessage().deserialize(
             Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.ip-not-found"),
             Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())));
           return;
         }
 
-        Sonar.get0().getAntiBot().getBlacklist().invalidate(rawAddress);
         source.sendMessage(MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.remove"),
           Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
@@ -86,7 +112,7 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
       }
 
       case "clear": {
-        final long blacklistSize = Sonar.get0().getAntiBot().getBlacklist().estimatedSize();
+        final long blacklistSize = addressStateTable.clearBlacklist() + subnetBlacklist.clear();
 
         if (blacklistSize == 0) {
           source.sendMessage(MiniMessage.miniMessage().deserialize(
@@ -95,7 +121,6 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
           return;
         }
 
-        Sonar.get0().getAntiBot().getBlacklist().invalidateAll();
         source.sendMessage(MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.clear"),
           Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
@@ -104,7 +129,7 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
       }
 
       case "size": {
-        final long blacklistSize = Sonar.get0().getAntiBot().getBlacklist().estimatedSize();
+        final long blacklistSize = addressStateTable.getBlacklistSize() + subnetBlacklist.getSize();
 
         source.sendMessage(MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.size"),
@@ -119,4 +144,43 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
       }
     }
   }
+
+  /**
+   * Validates an IP address or a CIDR range (e.g. 127.0.0.0/24)
+   *
+   * @return Parsed address or null if the address or prefix length is invalid
+   */
+  private static @Nullable InetAddress validateAddress(final @NotNull InvocationSource source,
+                                                      final @NotNull String raw) {
+    final int slash = raw.indexOf('/');
+    final InetAddress inetAddress = validateInetAddress(source, slash < 0 ? raw : raw.substring(0, slash));
+    if (inetAddress == null) return null;
+
+    if (slash >= 0 && !isValidPrefixLength(inetAddress, prefixLength(raw))) {
+      source.sendMessage(MiniMessage.miniMessage().deserialize(
+        Sonar.get0().getConfig().getMessagesConfig().getString("commands.invalid-ip-address"),
+        Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())));
+      return null;
+    }
+    return inetAddress;
+  }
+
+  private static boolean isValidPrefixLength(final @NotNull InetAddress inetAddress, final int prefixLength) {
+    return prefixLength >= 0 && prefixLength <= (inetAddress instanceof Inet4Address ? 32 : 128);
+  }
+
+  /**
+   * @return Prefix length of the given CIDR range or -1 if there is no (valid) prefix length
+   */
+  private static int prefixLength(final @NotNull String raw) {
+    final int slash = raw.indexOf('/');
+    if (slash < 0 || slash == raw.length() - 1 || raw.length() - slash > 4) return -1;
+    int prefixLength = 0;
+    for (int i = slash + 1; i < raw.length(); i++) {
+      final char c = raw.charAt(i);
+      if (c < '0' || c > '9') return -1;
+      prefixLength = prefixLength * 10 + (c - '0');
+    }
+    return prefixLength;
+  }
 }
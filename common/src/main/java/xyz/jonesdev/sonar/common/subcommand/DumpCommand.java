@@ -23,12 +23,15 @@
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.SonarPlatform;
+import xyz.jonesdev.sonar.api.antibot.AdmissionController;
+import xyz.jonesdev.sonar.api.antibot.FailReason;
 import xyz.jonesdev.sonar.api.command.InvocationSource;
 import xyz.jonesdev.sonar.api.command.subcommand.Subcommand;
 import xyz.jonesdev.sonar.api.command.subcommand.SubcommandInfo;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.WeakHashMap;
 
@@ -72,6 +75,25 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
       formatMemory(getFreeMemory()),
       formatMemory(getUsedMemory())
     ));
+    mappings.put("verifiedPlayers", Sonar.get0().getVerifiedPlayerController().getStatistics());
+    mappings.put("admission", Sonar.get0().getAntiBot().getQueue().getAdmissionController().getLastDecision());
+    // Show which checks stop the most players
+    final var failReasons = new EnumMap<FailReason, Long>(FailReason.class);
+    for (final FailReason reason : FailReason.values()) {
+      final long count = Sonar.get0().getStatistics().getFailedVerifications(reason);
+      if (count > 0L) {
+        failReasons.put(reason, count);
+      }
+    }
+    mappings.put("failReasons", failReasons);
+    final var admissionReasons = new EnumMap<AdmissionController.Reason, Long>(AdmissionController.Reason.class);
+    for (final AdmissionController.Reason reason : AdmissionController.Reason.values()) {
+      final long count = Sonar.get0().getStatistics().getAdmissionDecisions(reason);
+      if (count > 0L) {
+        admissionReasons.put(reason, count);
+      }
+    }
+    mappings.put("admissionReasons", admissionReasons);
     Sonar.get0().getLogger().info(Sonar.get0().getConfig().getMessagesConfig().getString("commands.dump.log")
       .replace("<dumped-json-data>", GSON.toJson(mappings)));
   }
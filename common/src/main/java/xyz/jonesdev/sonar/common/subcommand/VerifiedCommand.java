@@ -24,8 +24,8 @@
 import xyz.jonesdev.sonar.api.command.InvocationSource;
 import xyz.jonesdev.sonar.api.command.subcommand.Subcommand;
 import xyz.jonesdev.sonar.api.command.subcommand.SubcommandInfo;
-import xyz.jonesdev.sonar.api.database.model.VerifiedPlayer;
-import xyz.jonesdev.sonar.api.fingerprint.FingerprintingUtil;
+
+import java.net.InetAddress;
 
 @SubcommandInfo(
   name = "verified",
@@ -42,26 +42,29 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
           return;
         }
 
-        final String hostAddress = validateIP(source, args[2]);
+        final String hostAddress = args[2];
+        final InetAddress inetAddress = validateInetAddress(source, hostAddress);
         // Make sure the given IP address is valid
-        if (hostAddress == null) return;
+        if (inetAddress == null) return;
 
         final String username = args[3];
-        final String fingerprint = FingerprintingUtil.getFingerprint(username, hostAddress);
 
-        if (!Sonar.get0().getVerifiedPlayerController().getCache().contains(fingerprint)) {
-          source.sendMessage(MiniMessage.miniMessage().deserialize(
-            Sonar.get0().getConfig().getMessagesConfig().getString("commands.verified.ip-not-found"),
-            Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())));
-          return;
-        }
+        // The database might have to be queried, so don't block the command
+        Sonar.get0().getVerifiedPlayerController().isVerified(username, inetAddress).thenAccept(verified -> {
+          if (!verified) {
+            source.sendMessage(MiniMessage.miniMessage().deserialize(
+              Sonar.get0().getConfig().getMessagesConfig().getString("commands.verified.ip-not-found"),
+              Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())));
+            return;
+          }
 
-        Sonar.get0().getVerifiedPlayerController().remove(fingerprint);
-        source.sendMessage(MiniMessage.miniMessage().deserialize(
-          Sonar.get0().getConfig().getMessagesConfig().getString("commands.verified.remove"),
-          Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
-          Placeholder.unparsed("ip", hostAddress),
-          Placeholder.unparsed("username", username)));
+          Sonar.get0().getVerifiedPlayerController().remove(username, inetAddress);
+          source.sendMessage(MiniMessage.miniMessage().deserialize(
+            Sonar.get0().getConfig().getMessagesConfig().getString("commands.verified.remove"),
+            Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
+            Placeholder.unparsed("ip", hostAddress),
+            Placeholder.unparsed("username", username)));
+        });
         break;
       }
 
@@ -71,31 +74,34 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
           return;
         }
 
-        final String hostAddress = validateIP(source, args[2]);
+        final String hostAddress = args[2];
+        final InetAddress inetAddress = validateInetAddress(source, hostAddress);
         // Make sure the given IP address is valid
-        if (hostAddress == null) return;
+        if (inetAddress == null) return;
 
         final String username = args[3];
-        final String fingerprint = FingerprintingUtil.getFingerprint(username, hostAddress);
 
-        if (Sonar.get0().getVerifiedPlayerController().getCache().contains(fingerprint)) {
-          source.sendMessage(MiniMessage.miniMessage().deserialize(
-            Sonar.get0().getConfig().getMessagesConfig().getString("commands.verified.already"),
-            Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())));
-          return;
-        }
+        // The database might have to be queried, so don't block the command
+        Sonar.get0().getVerifiedPlayerController().isVerified(username, inetAddress).thenAccept(verified -> {
+          if (verified) {
+            source.sendMessage(MiniMessage.miniMessage().deserialize(
+              Sonar.get0().getConfig().getMessagesConfig().getString("commands.verified.already"),
+              Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())));
+            return;
+          }
 
-        Sonar.get0().getVerifiedPlayerController().add(new VerifiedPlayer(fingerprint, System.currentTimeMillis()));
-        source.sendMessage(MiniMessage.miniMessage().deserialize(
-          Sonar.get0().getConfig().getMessagesConfig().getString("commands.verified.add"),
-          Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
-          Placeholder.unparsed("ip", hostAddress),
-          Placeholder.unparsed("username", username)));
+          Sonar.get0().getVerifiedPlayerController().add(username, inetAddress, System.currentTimeMillis());
+          source.sendMessage(MiniMessage.miniMessage().deserialize(
+            Sonar.get0().getConfig().getMessagesConfig().getString("commands.verified.add"),
+            Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
+            Placeholder.unparsed("ip", hostAddress),
+            Placeholder.unparsed("username", username)));
+        });
         break;
       }
 
       case "clear": {
-        final int verifiedSize = Sonar.get0().getVerifiedPlayerController().getCache().size();
+        final long verifiedSize = Sonar.get0().getVerifiedPlayerController().getSize();
 
         if (verifiedSize == 0) {
           source.sendMessage(MiniMessage.miniMessage().deserialize(
@@ -113,7 +119,7 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
       }
 
       case "size": {
-        final int verifiedSize = Sonar.get0().getVerifiedPlayerController().getCache().size();
+        final long verifiedSize = Sonar.get0().getVerifiedPlayerController().getSize();
 
         source.sendMessage(MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("commands.verified.size"),
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.util;
+
+import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A window into the frame a packet was decoded from.
+ * <br>
+ * The bytes are neither copied nor retained, so a view is only valid for as long as its frame is;
+ * for decoded packets, that is until {@code SonarPacketListener#handle} has returned.
+ * Strings are only materialized when {@link #toString()} is called.
+ */
+public final class ByteBufView {
+  private @Nullable ByteBuf byteBuf;
+  private int offset, length;
+  private @Nullable String string;
+
+  public void set(final @NotNull ByteBuf byteBuf, final int offset, final int length) {
+    this.byteBuf = byteBuf;
+    this.offset = offset;
+    this.length = length;
+    this.string = null;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @return Whether the bytes of this view match the given ASCII string
+   */
+  public boolean contentEqualsAscii(final @NotNull String ascii) {
+    if (ascii.length() != length) {
+      return false;
+    }
+    final ByteBuf buf = buf();
+    for (int i = 0; i < length; i++) {
+      if (buf.getByte(offset + i) != ascii.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return Whether the bytes of this view match the given string while ignoring the case of ASCII letters
+   */
+  public boolean equalsIgnoreCaseAscii(final @NotNull String other) {
+    for (int i = 0; i < other.length(); i++) {
+      // Non-ASCII characters are encoded as multiple bytes, so we have to compare the decoded string instead
+      if (other.charAt(i) > 0x7F) {
+        return toString().equalsIgnoreCase(other);
+      }
+    }
+    if (other.length() != length) {
+      return false;
+    }
+    final ByteBuf buf = buf();
+    for (int i = 0; i < length; i++) {
+      if (toLowerAscii(buf.getByte(offset + i)) != toLowerAscii(other.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return Number of UTF-16 characters the decoded string would have
+   */
+  public int utf16Length() {
+    final ByteBuf buf = buf();
+    int chars = 0;
+    for (int i = 0; i < length; i++) {
+      final int b = buf.getByte(offset + i) & 0xFF;
+      // Skip continuation bytes; four-byte sequences are decoded as surrogate pairs
+      if ((b & 0xC0) != 0x80) {
+        chars += b >= 0xF0 ? 2 : 1;
+      }
+    }
+    return chars;
+  }
+
+  private static int toLowerAscii(final int c) {
+    return c >= 'A' && c <= 'Z' ? c | 0x20 : c;
+  }
+
+  private @NotNull ByteBuf buf() {
+    if (byteBuf == null) {
+      throw new IllegalStateException("View has not been decoded");
+    }
+    return byteBuf;
+  }
+
+  @Override
+  public @NotNull String toString() {
+    if (string == null) {
+      string = buf().toString(offset, length, StandardCharsets.UTF_8);
+    }
+    return string;
+  }
+}
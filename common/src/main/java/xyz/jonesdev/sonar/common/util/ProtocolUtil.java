@@ -267,6 +267,19 @@ public static void closeWith(final @NotNull Channel channel,
     return str;
   }
 
+  public static void readStringView(final @NotNull ByteBuf byteBuf,
+                                    final int cap,
+                                    final @NotNull ByteBufView view) throws DecoderException {
+    final int length = readVarInt(byteBuf);
+    checkState(length >= 0, "Got a negative-length string");
+    checkState(length <= cap * 3, "Bad string size");
+    checkState(byteBuf.isReadable(length), "Tried to read a too-long string");
+    view.set(byteBuf, byteBuf.readerIndex(), length);
+    byteBuf.skipBytes(length);
+    // A string cannot have more characters than bytes, so we only need to count them if it has more bytes than the cap
+    checkState(length <= cap || view.utf16Length() <= cap, "Got a too-long string");
+  }
+
   public static void writeString(final @NotNull ByteBuf byteBuf, final @NotNull CharSequence str) {
     final int size = ByteBufUtil.utf8Bytes(str);
     writeVarInt(byteBuf, size);
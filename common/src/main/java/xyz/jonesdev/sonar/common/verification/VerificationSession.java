@@ -0,0 +1,1053 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.verification;
+
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.antibot.FailReason;
+import xyz.jonesdev.sonar.api.antibot.SonarUser;
+import xyz.jonesdev.sonar.api.antibot.protocol.ProtocolVersion;
+import xyz.jonesdev.sonar.api.database.model.VerifiedPlayer;
+import xyz.jonesdev.sonar.api.event.impl.UserBlacklistedEvent;
+import xyz.jonesdev.sonar.api.event.impl.UserVerifyFailedEvent;
+import xyz.jonesdev.sonar.api.event.impl.UserVerifySuccessEvent;
+import xyz.jonesdev.sonar.common.netty.MinecraftVarIntLengthEncoder;
+import xyz.jonesdev.sonar.common.protocol.*;
+import xyz.jonesdev.sonar.common.protocol.map.MapCaptchaInfo;
+import xyz.jonesdev.sonar.common.protocol.packets.configuration.FinishConfigurationPacket;
+import xyz.jonesdev.sonar.common.protocol.packets.play.*;
+import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
+import xyz.jonesdev.sonar.common.util.ByteBufView;
+import xyz.jonesdev.sonar.common.util.ProtocolUtil;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static xyz.jonesdev.sonar.api.antibot.ChannelPipelines.SONAR_FRAME_DECODER;
+import static xyz.jonesdev.sonar.common.protocol.SonarPacketPreparer.*;
+
+/**
+ * Walks a single connection through all verification stages.
+ * <br>
+ * Every stage keeps its state in primitive fields of this object, so a verifying connection
+ * only needs this one listener instead of a new handler for every stage.
+ */
+public final class VerificationSession implements SonarPacketListener {
+  private static final Random RANDOM = new Random();
+
+  private final SonarUser user;
+  private final SonarPacketDecoder decoder;
+  private final SonarPacketEncoder encoder;
+  private Stage stage = Stage.LOGIN;
+
+  private enum Stage {
+    LOGIN,
+    GRAVITY,
+    PROTOCOL,
+    VEHICLE,
+    CAPTCHA,
+    // The verification has either failed or succeeded; ignore everything else the client sends
+    CLOSED
+  }
+
+  @RequiredArgsConstructor
+  private enum VehicleState {
+    WAITING(false),
+    IN_BOAT(true),
+    IN_AIR_AFTER_BOAT(false),
+    IN_MINECART(true),
+    IN_AIR_AFTER_MINECART(false);
+
+    private final boolean inVehicle;
+  }
+
+  // Login & configuration
+  private boolean receivedClientInfo, receivedClientBrand, acknowledgedLogin;
+  // Used by both the login and the vehicle stage
+  private int expectedKeepAliveId = PRE_JOIN_KEEP_ALIVE_ID;
+  // Gravity & collisions
+  private boolean enableGravityCheck, enableCollisionsCheck;
+  private boolean teleported, canFall, checkMovement, expectClientTick, expectTeleportPosRot;
+  private double y, deltaY, blockHeight;
+  private int movementTick, tickWithoutMove, expectedTeleportId = FIRST_TELEPORT_ID;
+  // Position that 1.21.2 clients send before confirming the teleport
+  private boolean hasPendingPosition, pendingOnGround;
+  private double pendingX, pendingY, pendingZ;
+  // Protocol
+  private boolean waitingSwingArm, waitingSlotConfirm, waitingTransaction;
+  private short expectedTransactionId;
+  private int currentClientSlotId, expectedSlotId = -1;
+  // Vehicle
+  private boolean waitingForStateChange;
+  private VehicleState vehicleState = VehicleState.WAITING, nextVehicleState;
+  private int rotations, inputs, paddles, vehicleMoves;
+  private double boatMotion, boatY = IN_AIR_Y_POSITION;
+  // CAPTCHA
+  private String answer;
+  private int tries, lastCountdownIndex, keepAliveStreak;
+
+  public VerificationSession(final @NotNull SonarUser user,
+                             final @NotNull SonarPacketDecoder decoder,
+                             final @NotNull SonarPacketEncoder encoder) {
+    this.user = user;
+    this.decoder = decoder;
+    this.encoder = encoder;
+
+    // Start initializing the actual join process for pre-1.20.2 clients
+    if (user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_20_2)) {
+      // This trick helps in reducing unnecessary outgoing server traffic
+      // by avoiding sending other packets to clients that are potentially bots.
+      if (user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_8)) {
+        user.channel().eventLoop().schedule(this::finishLogin, 100L, TimeUnit.MILLISECONDS);
+      } else {
+        /*
+         * The purpose of this KeepAlive packet is to confirm that the connection
+         * is active and legitimate, thereby preventing bot connections that
+         * could flood the server with login attempts and other unwanted traffic.
+         */
+        user.write(PRE_JOIN_KEEP_ALIVE);
+      }
+    }
+  }
+
+  @Override
+  public void handle(final @NotNull SonarPacketType type, final @NotNull SonarPacket packet) {
+    switch (stage) {
+      case LOGIN:
+        handleLogin(type, packet);
+        break;
+      case GRAVITY:
+        handleGravity(type, packet);
+        break;
+      case PROTOCOL:
+        handleProtocol(type, packet);
+        break;
+      case VEHICLE:
+        handleVehicle(type, packet);
+        break;
+      case CAPTCHA:
+        handleCaptcha(type, packet);
+        break;
+      case CLOSED:
+        break;
+    }
+  }
+
+  // Login & configuration
+
+  private void handleLogin(final @NotNull SonarPacketType type, final @NotNull SonarPacket packet) {
+    switch (type) {
+      case KEEP_ALIVE: {
+        // This is the first packet we expect from the client
+        final KeepAlivePacket keepAlive = (KeepAlivePacket) packet;
+
+        // Check if the KeepAlive ID matches the expected ID
+        final long keepAliveId = keepAlive.getId();
+        if (!checkState(keepAliveId == expectedKeepAliveId,
+          FailReason.KEEP_ALIVE_ID, expectedKeepAliveId, keepAliveId)) return;
+
+        // Immediately verify the player if they do not need any configuration (pre-1.20.2)
+        if (expectedKeepAliveId != 0) {
+          if (user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_20_2)) {
+            finishLogin();
+          } else {
+            markAcknowledged();
+          }
+
+          // Disable the check for any further packets the client might send
+          // while loading the world (or similar).
+          expectedKeepAliveId = 0;
+        }
+        break;
+      }
+      case LOGIN_ACKNOWLEDGED:
+        // Prevent users from sending multiple LoginAcknowledged packets
+        if (!checkState(!acknowledgedLogin, FailReason.DUPLICATE_LOGIN_ACK)) return;
+        // Update state, so we're able to send/receive packets during the CONFIG state
+        updateEncoderDecoderState(SonarPacketRegistry.CONFIG);
+        // Perform the KeepAlive check now (config, not pre-config)
+        user.write(PRE_JOIN_KEEP_ALIVE);
+        break;
+      case FINISH_CONFIGURATION:
+        // Update the encoder and decoder state because we're currently in the CONFIG state
+        updateEncoderDecoderState(SonarPacketRegistry.GAME);
+        if (!user.isGeyser() && !validateClientInformation()) return;
+        finishLogin();
+        break;
+      case CLIENT_INFORMATION:
+        handleClientInformation((ClientInformationPacket) packet);
+        break;
+      case PLUGIN_MESSAGE:
+        handlePluginMessage((PluginMessagePacket) packet);
+        break;
+    }
+  }
+
+  private void handleClientInformation(final @NotNull ClientInformationPacket clientInformation) {
+    if (!user.isGeyser()) {
+      if (!checkState(clientInformation.getViewDistance() >= 2,
+        FailReason.VIEW_DISTANCE, clientInformation.getViewDistance())) return;
+    }
+
+    receivedClientInfo = true;
+  }
+
+  private void handlePluginMessage(final @NotNull PluginMessagePacket pluginMessage) {
+    // TODO: Resolve as namespace (?)
+    final boolean usingModernChannel = pluginMessage.getChannel().contentEqualsAscii("minecraft:brand");
+    final boolean usingLegacyChannel = pluginMessage.getChannel().contentEqualsAscii("MC|Brand");
+
+    // Skip this payload if it does not contain client brand information
+    if (!usingModernChannel && !usingLegacyChannel) {
+      return;
+    }
+
+    // Validate the client branding using a regex to filter unwanted characters.
+    if (Sonar.get0().getConfig().getVerification().getBrand().isEnabled()) {
+      // Make sure the player isn't sending the client brand multiple times
+      if (!checkState(!receivedClientBrand, FailReason.DUPLICATE_CLIENT_BRAND)
+        || !validateClientBrand(pluginMessage.getData())) return;
+    }
+
+    receivedClientBrand = true;
+  }
+
+  private void markAcknowledged() {
+    acknowledgedLogin = true;
+    // Send the RegistrySync and FinishConfiguration packets using the pre-framed bundle
+    final SonarPacketBundle.Framed bundle = registryBundle.retainedFramed(user.getProtocolVersion());
+    if (bundle != null) {
+      user.write(bundle);
+      return;
+    }
+    // Write the new RegistrySync packets to the buffer
+    for (final SonarPacket packet : getRegistryPackets(user.getProtocolVersion())) {
+      user.delayedWrite(packet);
+    }
+    // Write the FinishConfiguration packet to the buffer
+    user.delayedWrite(FinishConfigurationPacket.INSTANCE);
+    // Send all packets in one flush
+    user.channel().flush();
+  }
+
+  private void finishLogin() {
+    // The delayed task for 1.7 clients might run after the player has already left this stage
+    if (stage == Stage.LOGIN && user.channel().isActive()) {
+      if (!Sonar.get0().getConfig().getVerification().getValidNameRegex().matcher(user.getUsername()).matches()) {
+        user.disconnect(Sonar.get0().getConfig().getVerification().getInvalidUsername());
+        return;
+      }
+
+      // Pass the player to the next verification stage
+      enterGravity();
+    }
+  }
+
+  private boolean validateClientInformation() {
+    return checkState(receivedClientInfo, FailReason.MISSING_CLIENT_INFORMATION)
+      && checkState(receivedClientBrand, FailReason.MISSING_CLIENT_BRAND);
+  }
+
+  private void updateEncoderDecoderState(final @NotNull SonarPacketRegistry registry) {
+    // Update the packet registry state in the encoder and decoder pipelines
+    decoder.updateRegistry(registry);
+    encoder.updateRegistry(registry);
+  }
+
+  private boolean validateClientBrand(final @NotNull ByteBufView data) {
+    // Check if the client brand is too short. It has to have at least 2 bytes.
+    if (!checkState(data.length() > 1, FailReason.CLIENT_BRAND_TOO_SHORT)) return false;
+    // Check if the decoded client brand string is too long
+    if (!checkState(data.length() < Sonar.get0().getConfig().getVerification().getBrand().getMaxLength(),
+      FailReason.CLIENT_BRAND_TOO_LONG, data.length())) return false;
+    // https://discord.com/channels/923308209769426994/1116066363887321199/1256929441053933608
+    String brand = data.toString();
+    // Remove the invalid character at the beginning of the client brand
+    if (user.getProtocolVersion().greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_8) && brand.length() > 1) {
+      brand = brand.substring(1);
+    }
+    // Regex pattern for validating client brands
+    final Pattern pattern = Sonar.get0().getConfig().getVerification().getBrand().getValidRegex();
+    if (!pattern.matcher(brand).matches()) {
+      fail(FailReason.CLIENT_BRAND_PATTERN, brand);
+      return false;
+    }
+    return true;
+  }
+
+  // Gravity & collisions
+
+  private void enterGravity() {
+    stage = Stage.GRAVITY;
+    // Bedrock users start falling immediately
+    canFall = user.isGeyser();
+    // We don't want to check Geyser players for valid gravity, as this might cause issues because of the protocol
+    enableGravityCheck = !user.isGeyser() && Sonar.get0().getConfig().getVerification().getGravity().isEnabled();
+    enableCollisionsCheck = !user.isGeyser() && Sonar.get0().getConfig().getVerification().getGravity().isCheckCollisions();
+
+    // Spawn the invisible platform below the player
+    SonarPacket platform = null;
+    int bundleIndex = 0;
+    if (enableCollisionsCheck) {
+      final int index = RANDOM.nextInt(BLOCKS_PACKETS.length);
+      blockHeight = POSSIBLE_BLOCK_TYPES[index].getBlockHeight().apply(user.getProtocolVersion());
+      platform = BLOCKS_PACKETS[index];
+      bundleIndex = index + 1;
+    }
+    // Send all packets at once using the pre-framed join bundle
+    final SonarPacketBundle.Framed bundle = joinBundles[bundleIndex].retainedFramed(user.getProtocolVersion());
+    if (bundle != null) {
+      user.write(bundle);
+    } else {
+      // Fall back to encoding every packet separately if no bundle exists for this version
+      for (final SonarPacket packet : getJoinPackets(user.getProtocolVersion(), platform)) {
+        user.delayedWrite(packet);
+      }
+      user.channel().flush();
+    }
+
+    // 1.8 and below don't have TeleportConfirm packets, which is why we're skipping that check.
+    if (user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_9)) {
+      // Enable the movement checks
+      teleported = true;
+    }
+  }
+
+  private void handleGravity(final @NotNull SonarPacketType type, final @NotNull SonarPacket packet) {
+    switch (type) {
+      case SET_PLAYER_POSITION_ROTATION: {
+        // Make sure the player has teleported before checking for position packets
+        final SetPlayerPositionRotationPacket position = (SetPlayerPositionRotationPacket) packet;
+        if (teleported) {
+          handleMovement(position.getX(), position.getY(), position.getZ(), position.isOnGround(), true);
+          // The movement might have failed the player or finished this stage
+          if (stage != Stage.GRAVITY) return;
+        } else if (user.getProtocolVersion().equals(ProtocolVersion.MINECRAFT_1_21_2)) {
+          // Copy the position since the packet itself must not outlive this call
+          hasPendingPosition = true;
+          pendingX = position.getX();
+          pendingY = position.getY();
+          pendingZ = position.getZ();
+          pendingOnGround = position.isOnGround();
+          return;
+        }
+        if (expectTeleportPosRot) {
+          expectTeleportPosRot = false;
+        } else {
+          checkClientTick();
+        }
+        break;
+      }
+      case SET_PLAYER_POSITION:
+        // Make sure the player has teleported before checking for position packets
+        if (teleported) {
+          final SetPlayerPositionPacket position = (SetPlayerPositionPacket) packet;
+          handleMovement(position.getX(), position.getY(), position.getZ(), position.isOnGround(), false);
+          if (stage != Stage.GRAVITY) return;
+        }
+        checkClientTick();
+        break;
+      case CONFIRM_TELEPORTATION: {
+        final ConfirmTeleportationPacket confirmTeleport = (ConfirmTeleportationPacket) packet;
+
+        // Only expect this packet to be sent once
+        if (!checkState(!teleported, FailReason.DUPLICATE_TELEPORT_CONFIRM)) return;
+        // Check if the teleport ID matches the expected ID
+        if (!checkState(confirmTeleport.getTeleportId() == expectedTeleportId,
+          FailReason.TELEPORT_ID, expectedTeleportId, confirmTeleport.getTeleportId())) return;
+
+        final boolean sendPosRotBefore = user.getProtocolVersion().equals(ProtocolVersion.MINECRAFT_1_21_2);
+        if (!checkState(sendPosRotBefore ? hasPendingPosition : !expectTeleportPosRot,
+          FailReason.TELEPORT_ORDER)) return;
+        if (!sendPosRotBefore) {
+          expectTeleportPosRot = true;
+        }
+
+        // The first teleport ID is not useful for us in this context, skip it
+        if (expectedTeleportId == FIRST_TELEPORT_ID) {
+          expectedTeleportId = SECOND_TELEPORT_ID;
+        } else {
+          // Enable the movement checks
+          teleported = true;
+
+          if (sendPosRotBefore) {
+            handleMovement(pendingX, pendingY, pendingZ, pendingOnGround, true);
+          }
+        }
+        hasPendingPosition = false;
+        break;
+      }
+      case CLIENT_INFORMATION:
+        // These packets can still arrive while the player is loading the world
+        handleClientInformation((ClientInformationPacket) packet);
+        break;
+      case PLUGIN_MESSAGE:
+        handlePluginMessage((PluginMessagePacket) packet);
+        break;
+      case CLIENT_TICK_END:
+        hasPendingPosition = false;
+        if (!expectClientTick) {
+          // Is it impossible for the client to not move during the gravity check?
+          if (++tickWithoutMove >= 20) {
+            //failOrShowCaptcha("expected position but got client tick end.");
+          }
+        } else {
+          tickWithoutMove = 0;
+          expectClientTick = false;
+        }
+        break;
+    }
+  }
+
+  private void checkClientTick() {
+    if (user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_21_2)) {
+      return;
+    }
+    if (expectClientTick) {
+      failOrShowCaptcha(FailReason.CLIENT_TICK);
+    } else {
+      expectClientTick = true;
+    }
+    tickWithoutMove = 0; // lag may cause some problems :(
+  }
+
+  private void finishGravity() {
+    // Force-stop the movement checks
+    teleported = false;
+    // Exempt pre-1.20.2 since they've already passed that check in the configuration phase
+    if (!user.isGeyser() && user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_20_2)
+      && !validateClientInformation()) {
+      return;
+    }
+    // Send the player to the next verification stage
+    enterProtocol();
+  }
+
+  private void handleMovement(final double x, final double y, final double z,
+                              final boolean onGround, final boolean rotated) {
+    if (!checkMovement) {
+      // No need to continue checking if the gravity and collision checks are disabled
+      if (!enableGravityCheck && !enableCollisionsCheck) {
+        finishGravity();
+        return;
+      }
+
+      // Check if the packet has characteristics of a packet after a teleport
+      if (!checkState(rotated, FailReason.MOVEMENT_ORDER)
+        || !checkState(!onGround, FailReason.TELEPORT_GROUND_STATE)
+        || !checkState(x == SPAWN_X_POSITION, FailReason.TELEPORT_X, x)
+        || !checkState(z == SPAWN_Z_POSITION, FailReason.TELEPORT_Z, z)) return;
+
+      // Synchronize the Y coordinate
+      this.y = dynamicSpawnYPosition;
+      checkMovement = true;
+
+      // Send the welcome message to the player
+      if (welcomeMessage != null) {
+        user.write(welcomeMessage);
+      }
+      return;
+    }
+
+    // Calculate/store all necessary positions
+    final double lastDeltaY = this.deltaY;
+    final double lastY = this.y;
+    this.deltaY = y - lastY;
+    this.y = y;
+
+    // Log/debug position if enabled in the configuration
+    if (Sonar.get0().getConfig().getVerification().isDebugXYZPositions()) {
+      Sonar.get0().getLogger().info("{}: {}/{}/{} ly={}, dy={}, h={}, g={}, r={}",
+        user.getUsername(), x, y, z, lastY, deltaY, blockHeight, onGround, rotated);
+    }
+
+    // Ensure that the player's Y coordinate is above the collision platform
+    if (y < PLATFORM_Y_POSITION) {
+      failOrShowCaptcha(FailReason.FELL_THROUGH_BLOCKS, y, deltaY, movementTick);
+      return;
+    }
+
+    // The player is not allowed to move away from the collision platform.
+    // This should not happen unless the max movement tick is configured to a high number.
+    if (!checkState(Math.abs(Math.abs(x) - BLOCKS_PER_ROW) < BLOCKS_PER_ROW, FailReason.X_OFFSET, x)
+      || !checkState(Math.abs(Math.abs(z) - BLOCKS_PER_ROW) < BLOCKS_PER_ROW, FailReason.Z_OFFSET, z)) return;
+
+    if (!onGround) {
+      // The deltaY is 0 whenever the player sends their first position packet.
+      // We have to account for this or the player will falsely fail the verification.
+      if (deltaY == 0) {
+        if (!checkState(rotated, FailReason.MOVEMENT_ORDER)
+          || !checkState(movementTick == 0, FailReason.FIRST_MOVEMENT_TICK, movementTick)) return;
+        // 1.7 clients immediately start falling after this packet
+        if (user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_8)) {
+          movementTick++;
+        }
+        // We've received the first position packet; the player will now start falling
+        canFall = true;
+        return;
+      }
+
+      // Make sure we're actually expecting the player to fall at this point in time
+      if (!checkState(canFall, FailReason.UNEXPECTED_MOTION, deltaY)) return;
+
+      // The movement tick should not be ignored when gravity check is disabled.
+      movementTick++;
+
+      if (enableGravityCheck) {
+        // Predict the player's current motion based on the last motion
+        // https://minecraft.wiki/w/Entity#Motion_of_entities
+        final double predicted = (lastDeltaY - 0.08) * 0.98f;
+        final double difference = Math.abs(deltaY - predicted);
+
+        // Check if the difference between the predicted and actual motion is too large
+        if (difference > 1e-7) {
+          failOrShowCaptcha(FailReason.GRAVITY, predicted, deltaY, y);
+          return;
+        }
+
+        // The player is obeying gravity, go on to the next stage if the collision check is disabled.
+        if (!enableCollisionsCheck && movementTick == maxMovementTick) {
+          finishGravity();
+        }
+      }
+    } else if (enableCollisionsCheck) {
+      // Make sure the player has actually moved before reaching the platform
+      if (enableGravityCheck && ++movementTick < maxMovementTick) {
+        failOrShowCaptcha(FailReason.COLLISION_TICK, movementTick, blockHeight);
+        return;
+      }
+      // Calculate the difference between the player's Y coordinate and the expected Y coordinate
+      final double collisionOffsetY = (PLATFORM_Y_POSITION + blockHeight) - y;
+      // Make sure the player is actually colliding with the blocks and not only spoofing ground
+      if (collisionOffsetY != 0) {
+        failOrShowCaptcha(FailReason.COLLISION, collisionOffsetY, y, blockHeight);
+        return;
+      }
+      // The player has collided with the blocks, go on to the next stage
+      finishGravity();
+    }
+  }
+
+  private void failOrShowCaptcha(final @NotNull FailReason reason, final Object @NotNull ... details) {
+    // Do not fail the player if the user configured to display the CAPTCHA instead
+    if (Sonar.get0().getConfig().getVerification().getGravity().isCaptchaOnFail()) {
+      user.setForceCaptcha(true);
+      finishGravity();
+      return;
+    }
+    fail(reason, details);
+  }
+
+  // Protocol
+
+  private void enterProtocol() {
+    stage = Stage.PROTOCOL;
+    // Immediately send the player the transaction packet
+    sendTransaction();
+  }
+
+  private void handleProtocol(final @NotNull SonarPacketType type, final @NotNull SonarPacket packet) {
+    switch (type) {
+      case TRANSACTION: {
+        final TransactionPacket transaction = (TransactionPacket) packet;
+        // Make sure we are expecting a transaction packet
+        if (!checkState(waitingTransaction, FailReason.UNEXPECTED_TRANSACTION, transaction.getTransactionId())) return;
+        // Make sure the window ID is valid
+        if (!checkState(transaction.getWindowId() == 0, FailReason.TRANSACTION_WINDOW, transaction.getWindowId())) return;
+        // Make sure the transaction was accepted
+        // This must - by vanilla protocol - always be accepted
+        if (!checkState(transaction.isAccepted(), FailReason.TRANSACTION_NOT_ACCEPTED)) return;
+        // Also check if the transaction ID matches the expected ID
+        final long transactionId = transaction.getTransactionId();
+        if (!checkState(transactionId == expectedTransactionId,
+          FailReason.TRANSACTION_ID, expectedTransactionId, transactionId)) return;
+
+        waitingTransaction = false;
+
+        // Only perform the SetHeldItem check on Java players since the Bedrock protocol breaks this check.
+        // I don't really know why this doesn't work on Bedrock,
+        // but I think it has to do with how Geyser/floodgate translates this packet:
+        // https://wiki.vg/Bedrock_Protocol#Player_Hotbar
+        if (user.isGeyser()) {
+          finishProtocol();
+        } else if (waitingSlotConfirm) {
+          waitingSlotConfirm = false;
+          expectedSlotId = -1;
+          // The player did not send duplicate packets, so they pass this check
+          sendArmAnimation();
+        } else {
+          sendSetHeldItem();
+        }
+        break;
+      }
+      case SET_HELD_ITEM: {
+        final SetHeldItemPacket heldItemPacket = (SetHeldItemPacket) packet;
+
+        final int slotId = heldItemPacket.getSlot();
+        // Also check if the player sent an invalid slot which is impossible by vanilla protocol
+        if (!checkState(slotId >= 0 && slotId <= 8, FailReason.SLOT_OUT_OF_RANGE, slotId)) return;
+
+        // Only continue checking if we're actually expecting a SetHeldItem packet
+        if (expectedSlotId != -1
+          // Check if the slot ID matches the expected slot ID
+          // This can false flag if a player spams these packets, which is why we don't fail for this
+          && slotId == expectedSlotId
+          // Make sure we actually want to send a transaction at this point in time
+          && !waitingSlotConfirm) {
+          sendTransaction();
+          waitingSlotConfirm = true;
+        }
+
+        currentClientSlotId = slotId;
+        break;
+      }
+      case ANIMATION:
+        // Make sure we are awaiting an AnimationPacket packet
+        if (waitingSwingArm) {
+          final AnimationPacket animationPacket = (AnimationPacket) packet;
+
+          if (user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_8)) {
+            // Check if the entity ID is the player itself
+            if (!checkState(animationPacket.getEntityId() == PLAYER_ENTITY_ID,
+              FailReason.ANIMATION_ENTITY_ID, animationPacket.getEntityId())) return;
+            // Check if the player is sending the correct animation type
+            if (animationPacket.getType() == AnimationPacket.LegacyAnimationType.SWING_ARM) {
+              waitingSwingArm = false;
+              finishProtocol();
+            }
+          } else {
+            if (!checkState(animationPacket.getHand() == AnimationPacket.MAIN_HAND,
+              FailReason.ANIMATION_HAND, animationPacket.getHand())) return;
+            waitingSwingArm = false;
+            finishProtocol();
+          }
+        }
+        break;
+    }
+  }
+
+  /**
+   * Uses Transaction (ping) packets to check for an immediate, legitimate response from the client
+   * <br>
+   * <a href="https://wiki.vg/Protocol#Ping_.28configuration.29">Wiki.vg - Ping (configuration)</a>
+   * <a href="https://wiki.vg/Protocol#Ping_.28play.29">Wiki.vg - Ping (play)</a>
+   */
+  private void sendTransaction() {
+    // Send a Transaction (Ping) packet with a random ID
+    expectedTransactionId = (short) -RANDOM.nextInt(Short.MAX_VALUE);
+    user.write(new TransactionPacket(0, expectedTransactionId, false));
+    waitingTransaction = true;
+  }
+
+  /**
+   * Uses SetHeldItem packets to check for a legitimate response from the client
+   * <br>
+   * <a href="https://wiki.vg/Protocol#Set_Held_Item_.28serverbound.29">Wiki.vg - SetHeldItem (play)</a>
+   */
+  private void sendSetHeldItem() {
+    // Send an invalid HeldItemChange packet to the player to see if the player responds at all
+    user.delayedWrite(INVALID_HELD_ITEM_SLOT);
+    // Increment the player's slot by a random slot, and then modulo it by the maximum slot (8)
+    expectedSlotId = (currentClientSlotId + 1 + RANDOM.nextInt(7)) % 8;
+    user.delayedWrite(new SetHeldItemPacket(expectedSlotId));
+    user.channel().flush();
+  }
+
+  /**
+   * Uses EntityAnimation packets to check for the excepted Animation (SwingArm) from the client.
+   * <br>
+   * <a href="https://wiki.vg/Protocol#Entity_Animation">Wiki.vg - EntityAnimation</a>
+   * <a href="https://wiki.vg/Protocol#Swing_Arm">Wiki.vg - SwingArm</a>
+   */
+  private void sendArmAnimation() {
+    user.write(new EntityAnimationPacket(PLAYER_ENTITY_ID, EntityAnimationPacket.Type.SWING_MAIN_ARM));
+    waitingSwingArm = true;
+  }
+
+  private void finishProtocol() {
+    // Pass the player to the next best verification stage
+    if (!user.isGeyser() && Sonar.get0().getConfig().getVerification().getVehicle().isEnabled()) {
+      enterVehicle();
+    } else if (user.isForceCaptcha() || Sonar.get0().getAntiBot().shouldPerformCaptcha()) {
+      enterCaptcha();
+    } else {
+      // The player has passed all checks
+      finishVerification();
+    }
+  }
+
+  // Vehicle
+
+  private void enterVehicle() {
+    stage = Stage.VEHICLE;
+    spawnVehicle(VehicleState.IN_BOAT);
+  }
+
+  private void handleVehicle(final @NotNull SonarPacketType type, final @NotNull SonarPacket packet) {
+    if (type == SonarPacketType.KEEP_ALIVE) {
+      final KeepAlivePacket keepAlivePacket = (KeepAlivePacket) packet;
+
+      // Check if we are expecting a KeepAlive packet
+      if (!checkState(nextVehicleState != null, FailReason.VEHICLE_PACKET_TIMING)) return;
+      // Also check if the KeepAlive ID matches the expected ID
+      if (!checkState(keepAlivePacket.getId() == expectedKeepAliveId,
+        FailReason.VEHICLE_KEEP_ALIVE_ID, expectedKeepAliveId, keepAlivePacket.getId())) return;
+
+      vehicleState = nextVehicleState;
+      nextVehicleState = null;
+      waitingForStateChange = false;
+    } else if (!waitingForStateChange) {
+      switch (type) {
+        case PADDLE_BOAT:
+          if (vehicleState == VehicleState.IN_BOAT) {
+            paddles++;
+          }
+          break;
+        case VEHICLE_MOVE:
+          if (vehicleState == VehicleState.IN_BOAT) {
+            final VehicleMovePacket vehicleMove = (VehicleMovePacket) packet;
+            // Check the Y position of the vehicle
+            if (!checkState(vehicleMove.getY() <= IN_AIR_Y_POSITION, FailReason.VEHICLE_Y, vehicleMove.getY())) return;
+
+            // Check the gravity of the vehicle
+            final double lastBoatMotion = boatMotion;
+            final double lastBoatY = boatY;
+            boatY = vehicleMove.getY();
+            boatMotion = boatY - lastBoatY;
+            final double predicted = lastBoatMotion - 0.03999999910593033D;
+            final double difference = Math.abs(boatMotion - predicted);
+            // Check if the difference between the predicted and actual motion is too large
+            if (!checkState(difference < 1e-7, FailReason.VEHICLE_GRAVITY, predicted, boatMotion)) return;
+
+            vehicleMoves++;
+          }
+          break;
+        case SET_PLAYER_ROTATION:
+          if (vehicleState.inVehicle) {
+            rotations++;
+
+            // 1.21.2+ do not send PlayerInput packets when inside a vehicle.
+            // Handle it after SetPlayerRotationPacket to simulate vanilla behavior.
+            if (user.getProtocolVersion().greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_21_2)) {
+              handlePlayerInput();
+            }
+          }
+          break;
+        case PLAYER_INPUT:
+          // 1.21.2+ send PlayerInput packets when the player starts sprinting, sneaking, etc.
+          if (vehicleState.inVehicle && user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_21_2)) {
+            final PlayerInputPacket playerInput = (PlayerInputPacket) packet;
+
+            // Check if the player is sending invalid vehicle speed values
+            final float forward = Math.abs(playerInput.getForward());
+            final float sideways = Math.abs(playerInput.getSideways());
+            final float maxVehicleSpeed = /*user.isGeyser() ? 1 :*/ 0.98f;
+            if (!checkState(forward <= maxVehicleSpeed, FailReason.VEHICLE_SPEED_FORWARD, forward)
+              || !checkState(sideways <= maxVehicleSpeed, FailReason.VEHICLE_SPEED_SIDEWAYS, sideways)) return;
+
+            handlePlayerInput();
+          }
+          break;
+        case SET_PLAYER_POSITION_ROTATION: {
+          final SetPlayerPositionRotationPacket posRot = (SetPlayerPositionRotationPacket) packet;
+          handleVehicleMovement(posRot.getY(), posRot.isOnGround());
+          break;
+        }
+        case SET_PLAYER_POSITION: {
+          final SetPlayerPositionPacket position = (SetPlayerPositionPacket) packet;
+          handleVehicleMovement(position.getY(), position.isOnGround());
+          break;
+        }
+      }
+    }
+  }
+
+  private void spawnVehicle(final @NotNull VehicleState nextState) {
+    user.delayedWrite(nextState == VehicleState.IN_BOAT ? SPAWN_BOAT_ENTITY : SPAWN_MINECART_ENTITY);
+    user.delayedWrite(SET_VEHICLE_PASSENGERS);
+    prepareForNextVehicleState(nextState);
+  }
+
+  private void prepareForNextVehicleState(final @NotNull VehicleState nextState) {
+    nextVehicleState = nextState;
+    waitingForStateChange = true;
+    expectedKeepAliveId = RANDOM.nextInt();
+    rotations = inputs = paddles = vehicleMoves = 0;
+    user.delayedWrite(new KeepAlivePacket(expectedKeepAliveId));
+    user.channel().flush();
+  }
+
+  private void finishVehicle() {
+    // Pass the player to the next best verification stage
+    if (user.isForceCaptcha() || Sonar.get0().getAntiBot().shouldPerformCaptcha()) {
+      enterCaptcha();
+    } else {
+      finishVerification();
+    }
+  }
+
+  private void handleVehicleMovement(final double y, final boolean isOnGround) {
+    // Make sure we're currently expecting movement
+    if (vehicleState.inVehicle || vehicleState == VehicleState.WAITING) {
+      return;
+    }
+
+    // Make sure the ground state and y position are correct
+    if (!checkState(y <= boatY, FailReason.VEHICLE_EXIT_Y, y)
+      || !checkState(!isOnGround, FailReason.VEHICLE_EXIT_GROUND_STATE, y)) return;
+
+    if (vehicleState == VehicleState.IN_AIR_AFTER_BOAT) {
+      spawnVehicle(VehicleState.IN_MINECART);
+    } else {
+      finishVehicle();
+    }
+  }
+
+  private void handlePlayerInput() {
+    // 1.8 and below do not have PaddleBoat packets, so we simply exempt them from the PaddleBoat check.
+    // Clients also don't send PaddleBoat & VehicleMovePacket packets while riding minecarts.
+    if (user.getProtocolVersion().lessThan(ProtocolVersion.MINECRAFT_1_9) || vehicleState == VehicleState.IN_MINECART) {
+      paddles++;
+      vehicleMoves++;
+    }
+
+    // Check for packet order
+    if (!checkState(rotations >= inputs, FailReason.INPUT_ROTATION_ORDER, inputs, rotations)
+      || !checkState(paddles >= inputs, FailReason.INPUT_PADDLE_ORDER, inputs, paddles)
+      || !checkState(vehicleMoves >= inputs, FailReason.INPUT_VEHICLE_MOVE_ORDER, inputs, vehicleMoves)) return;
+
+    inputs++;
+
+    // Check if we've received more than the minimum number of packets
+    final int minimumPackets = Sonar.get0().getConfig().getVerification().getVehicle().getMinimumPackets();
+    if (inputs > minimumPackets && rotations > minimumPackets
+      && paddles > minimumPackets && vehicleMoves > minimumPackets) {
+      // Move on to the next stage
+      user.delayedWrite(REMOVE_VEHICLE);
+      prepareForNextVehicleState(vehicleState == VehicleState.IN_BOAT
+        ? VehicleState.IN_AIR_AFTER_BOAT : VehicleState.IN_AIR_AFTER_MINECART);
+    }
+  }
+
+  // CAPTCHA
+
+  private void enterCaptcha() {
+    // Disconnect the player if there is no CAPTCHA available at the moment
+    if (!CaptchaPreparer.isCaptchaAvailable()) {
+      stage = Stage.CLOSED;
+      user.disconnect(Sonar.get0().getConfig().getVerification().getCurrentlyPreparing());
+      return;
+    }
+
+    stage = Stage.CAPTCHA;
+    tries = Sonar.get0().getConfig().getVerification().getMap().getMaxTries();
+
+    // We may not be on slot 4, so we need to make sure to synchronize the current slot
+    user.delayedWrite(CAPTCHA_HELD_ITEM_SLOT);
+    user.delayedWrite(CAPTCHA_SET_CONTAINER_SLOT);
+    // Send random captcha to the player
+    final MapCaptchaInfo captcha = CaptchaPreparer.getRandomCaptcha();
+    answer = captcha.getAnswer().toLowerCase();
+    captcha.delayedWrite(user);
+    // Teleport the player to the position above the platform
+    user.delayedWrite(CAPTCHA_POSITION);
+    // Make sure the player cannot move
+    user.delayedWrite(user.isGeyser() ? NO_MOVE_ABILITIES_BEDROCK : NO_MOVE_ABILITIES);
+    // Make sure the player knows that they have to enter the code in chat
+    user.delayedWrite(enterCodeMessage);
+    // Send all packets in one flush
+    user.channel().flush();
+  }
+
+  private void handleCaptcha(final @NotNull SonarPacketType type, final @NotNull SonarPacket packet) {
+    // Check if the player took too long to enter the CAPTCHA
+    final int maxDuration = Sonar.get0().getConfig().getVerification().getMap().getMaxDuration();
+    if (!checkState(!user.getLoginTimer().elapsed(maxDuration), FailReason.CAPTCHA_TIMEOUT)) return;
+
+    switch (type) {
+      case SYSTEM_CHAT: {
+        final SystemChatPacket chat = (SystemChatPacket) packet;
+        // Finish the verification if the player entered the correct code
+        if (chat.getMessage().equalsIgnoreCaseAscii(answer)) {
+          finishVerification();
+          return;
+        }
+        // Decrement the number of tries left
+        if (!checkState(tries-- > 0, FailReason.CAPTCHA_TRIES)) return;
+        // Send the player a chat message to let them know that the code they entered is incorrect
+        user.write(incorrectCaptcha[tries]);
+        break;
+      }
+      case SET_PLAYER_POSITION:
+      case SET_PLAYER_POSITION_ROTATION:
+        // A position packet is sent approximately every second
+        if (Sonar.get0().getConfig().getVerification().getGamemode().isSurvivalOrAdventure()) {
+          final long difference = maxDuration - user.getLoginTimer().delay();
+          final int index = (int) (difference / 1000D);
+          // Make sure we can safely get and send the packet
+          if (lastCountdownIndex != index && index >= 0 && xpCountdown.length > index) {
+            user.write(xpCountdown[index]);
+          }
+          lastCountdownIndex = index;
+        }
+        // Send a KeepAlive packet every few seconds
+        if (keepAliveStreak++ > 20) {
+          keepAliveStreak = 0;
+          // Send a KeepAlive packet to prevent timeout
+          user.write(RANDOM_KEEP_ALIVE);
+        }
+        break;
+    }
+  }
+
+  // Result
+
+  private void finishVerification() {
+    stage = Stage.CLOSED;
+    GlobalSonarStatistics.TOTAL_SUCCESSFUL_VERIFICATIONS.increment();
+
+    // Add verified player to the database
+    Sonar.get0().getVerifiedPlayerController().add(new VerifiedPlayer(
+      user.getFingerprint(), user.getLoginTimer().getStart()));
+
+    // Call the VerifySuccessEvent for external API usage
+    Sonar.get0().getEventManager().publish(new UserVerifySuccessEvent(user));
+
+    // If enabled, transfer the player back to the origin server.
+    // This feature was introduced by Mojang in Minecraft version 1.20.5.
+    if (transferToOrigin != null && user.getProtocolVersion().greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_20_5)) {
+      // Send the transfer packet to the player (and close the channel if on Java Edition)
+      if (user.isGeyser()) {
+        user.write(transferToOrigin);
+        // Make sure we cannot receive any more packets from the player
+        user.channel().pipeline().remove(decoder);
+        user.channel().pipeline().remove(encoder);
+        if (user.channel().pipeline().get(SONAR_FRAME_DECODER) != null) {
+          user.channel().pipeline().remove(SONAR_FRAME_DECODER);
+        }
+        user.channel().pipeline().remove(MinecraftVarIntLengthEncoder.class);
+      } else {
+        ProtocolUtil.closeWith(user.channel(), user.getProtocolVersion(), transferToOrigin);
+      }
+    } else {
+      // Disconnect player with the verification success message
+      user.disconnect(Sonar.get0().getConfig().getVerification().getVerificationSuccess());
+    }
+
+    Sonar.get0().getLogger().info(
+      Sonar.get0().getConfig().getMessagesConfig().getString("verification.logs.successful")
+        .replace("<username>", user.getUsername())
+        .replace("<time-taken>", user.getLoginTimer().toString()));
+  }
+
+  private void fail(final @NotNull FailReason reason, final Object @NotNull ... details) {
+    stage = Stage.CLOSED;
+    GlobalSonarStatistics.countFailedVerification(reason);
+
+    user.disconnect(Sonar.get0().getConfig().getVerification().getVerificationFailed());
+
+    final boolean shouldLog = Sonar.get0().getAttackTracker().getCurrentAttack() == null
+      || Sonar.get0().getConfig().getVerification().isLogDuringAttack();
+
+    if (shouldLog) {
+      Sonar.get0().getLogger().info(
+        Sonar.get0().getConfig().getMessagesConfig().getString("verification.logs.failed")
+          .replace("<username>", user.getUsername())
+          .replace("<ip>", Sonar.get0().getConfig().formatAddress(user.getInetAddress()))
+          .replace("<protocol>", user.getProtocolVersion().getName())
+          .replace("<reason>", reason.format(details)));
+    }
+
+    // Call the VerifyFailedEvent for external API usage
+    Sonar.get0().getEventManager().publish(new UserVerifyFailedEvent(user, reason, details));
+
+    // Use a label, so we can easily add more code beneath this method in the future
+    blacklist: {
+      final int newScore = Sonar.get0().getAntiBot().getAddressStateTable().incrementBlacklistScore(
+        user.getInetAddress(), TimeUnit.MILLISECONDS.toNanos(Sonar.get0().getAntiBot().getBlacklistTime()));
+
+      // The user is allowed to disable the blacklist entirely by setting the threshold to 0
+      final int limit = Sonar.get0().getConfig().getVerification().getBlacklistThreshold();
+      // The player hasn't been blacklisted yet, so skip this iteration
+      if (newScore < limit) break blacklist;
+
+      GlobalSonarStatistics.TOTAL_BLACKLISTED_PLAYERS.increment();
+
+      // Blacklist the entire subnet if too many of its addresses have been blacklisted
+      if (newScore == limit) {
+        Sonar.get0().getAntiBot().getSubnetBlacklist().escalate(
+          user.getInetAddress(), TimeUnit.MILLISECONDS.toNanos(Sonar.get0().getAntiBot().getBlacklistTime()));
+      }
+
+      // Call the BotBlacklistedEvent for external API usage
+      Sonar.get0().getEventManager().publish(new UserBlacklistedEvent(user));
+
+      if (shouldLog) {
+        Sonar.get0().getLogger().info(
+          Sonar.get0().getConfig().getMessagesConfig().getString("verification.logs.blacklisted")
+            .replace("<username>", user.getUsername())
+            .replace("<ip>", Sonar.get0().getConfig().formatAddress(user.getInetAddress()))
+            .replace("<protocol>", user.getProtocolVersion().getName()));
+      }
+    }
+  }
+
+  /*
+   * Fail the verification if the condition is not met and return whether it was met.
+   * The details are only boxed and formatted once a check actually fails.
+   */
+
+  private boolean checkState(final boolean state, final @NotNull FailReason reason) {
+    if (!state) {
+      fail(reason);
+    }
+    return state;
+  }
+
+  private boolean checkState(final boolean state, final @NotNull FailReason reason, final long detail) {
+    if (!state) {
+      fail(reason, detail);
+    }
+    return state;
+  }
+
+  private boolean checkState(final boolean state, final @NotNull FailReason reason,
+                             final long detail, final long otherDetail) {
+    if (!state) {
+      fail(reason, detail, otherDetail);
+    }
+    return state;
+  }
+
+  private boolean checkState(final boolean state, final @NotNull FailReason reason, final double detail) {
+    if (!state) {
+      fail(reason, detail);
+    }
+    return state;
+  }
+
+  private boolean checkState(final boolean state, final @NotNull FailReason reason,
+                             final double detail, final double otherDetail) {
+    if (!state) {
+      fail(reason, detail, otherDetail);
+    }
+    return state;
+  }
+}